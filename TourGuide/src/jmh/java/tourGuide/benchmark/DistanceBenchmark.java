@@ -0,0 +1,86 @@
+package tourGuide.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import gpsUtil.location.Location;
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.attraction.GeoPoint;
+import tourGuide.provider.SimulatedLatency;
+import tourGuide.provider.SimulatedLocationProvider;
+import tourGuide.provider.SimulatedRewardProvider;
+import tourGuide.service.RewardPointsCache;
+import tourGuide.service.RewardsService;
+
+/**
+ * Cost of one distance computation, from raw locations and from precomputed points.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+	private static final int PAIRS = 1024;
+
+	private RewardsService rewardsService;
+	private Location[] from;
+	private Location[] to;
+	private GeoPoint[] fromPoints;
+	private GeoPoint[] toPoints;
+
+	@Setup
+	public void setUp() {
+		rewardsService = new RewardsService(new AttractionCatalog(new SimulatedLocationProvider(0, SimulatedLatency.NONE, 42)),
+				new RewardPointsCache(new SimulatedRewardProvider(SimulatedLatency.NONE, 42)));
+		SplittableRandom random = new SplittableRandom(42);
+		from = new Location[PAIRS];
+		to = new Location[PAIRS];
+		fromPoints = new GeoPoint[PAIRS];
+		toPoints = new GeoPoint[PAIRS];
+		for(int i = 0; i < PAIRS; i++) {
+			from[i] = SimulatedLocationProvider.randomLocation(random);
+			to[i] = SimulatedLocationProvider.randomLocation(random);
+			fromPoints[i] = GeoPoint.of(from[i]);
+			toPoints[i] = GeoPoint.of(to[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PAIRS)
+	public void getDistance(Blackhole blackhole) {
+		for(int i = 0; i < PAIRS; i++) {
+			blackhole.consume(rewardsService.getDistance(from[i], to[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PAIRS)
+	public void geoPointDistance(Blackhole blackhole) {
+		for(int i = 0; i < PAIRS; i++) {
+			blackhole.consume(fromPoints[i].distanceTo(toPoints[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PAIRS)
+	public void geoPointWithinProximity(Blackhole blackhole) {
+		for(int i = 0; i < PAIRS; i++) {
+			blackhole.consume(fromPoints[i].isWithin(toPoints[i], 200));
+		}
+	}
+}
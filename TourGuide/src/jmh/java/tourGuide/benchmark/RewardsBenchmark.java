@@ -0,0 +1,110 @@
+package tourGuide.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.provider.SimulatedLatency;
+import tourGuide.provider.SimulatedLocationProvider;
+import tourGuide.provider.SimulatedRewardProvider;
+import tourGuide.service.RewardPointsCache;
+import tourGuide.service.RewardsService;
+import tourGuide.user.User;
+
+/**
+ * Rewards calculation for one user whose whole history is pending, by history size and
+ * number of attractions. Half of the locations are close to an attraction.
+ *
+ * Users are drawn in turn from a fixed pool, so the reward points cache stays bounded and,
+ * once warmed up, serves every lookup: the calculation is measured without provider calls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RewardsBenchmark {
+	private static final int USER_POOL_SIZE = 256;
+
+	@Param({ "1", "10", "100" })
+	public int historySize;
+
+	@Param({ "26", "1000" })
+	public int attractionCount;
+
+	private RewardsService rewardsService;
+	private UUID[] userIds;
+	private List<List<VisitedLocation>> histories;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		rewardsService = new RewardsService(new AttractionCatalog(new SimulatedLocationProvider(attractionCount, SimulatedLatency.NONE, 42)),
+				new RewardPointsCache(new SimulatedRewardProvider(SimulatedLatency.NONE, 42)));
+		List<Attraction> attractions = rewardsService.getAttractionIndex().getAttractions();
+		SplittableRandom random = new SplittableRandom(42);
+		userIds = new UUID[USER_POOL_SIZE];
+		histories = new ArrayList<>(USER_POOL_SIZE);
+		for(int n = 0; n < USER_POOL_SIZE; n++) {
+			userIds[n] = new UUID(random.nextLong(), random.nextLong());
+			List<VisitedLocation> history = new ArrayList<>(historySize);
+			for(int i = 0; i < historySize; i++) {
+				Location location = SimulatedLocationProvider.randomLocation(random);
+				if(i % 2 == 0) {
+					Attraction attraction = attractions.get(random.nextInt(attractionCount));
+					location = new Location(attraction.latitude + random.nextDouble(-0.05, 0.05), attraction.longitude);
+				}
+				history.add(new VisitedLocation(userIds[n], location, new Date()));
+			}
+			histories.add(history);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		rewardsService.shutdown();
+	}
+
+	@Benchmark
+	public User calculateRewards(PendingUser pendingUser) {
+		rewardsService.calculateRewards(pendingUser.user);
+		return pendingUser.user;
+	}
+
+	/**
+	 * The next user of the pool, rebuilt for every invocation so its whole history is pending again.
+	 */
+	@State(Scope.Thread)
+	public static class PendingUser {
+		private int next;
+		private User user;
+
+		@Setup(Level.Invocation)
+		public void createUser(RewardsBenchmark benchmark) {
+			next = (next + 1) % USER_POOL_SIZE;
+			user = new User(benchmark.userIds[next], "benchmark", "000", "benchmark@tourGuide.com");
+			benchmark.histories.get(next).forEach(user::addToVisitedLocations);
+		}
+	}
+}
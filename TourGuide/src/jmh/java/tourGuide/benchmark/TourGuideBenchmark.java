@@ -0,0 +1,123 @@
+package tourGuide.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.provider.LocationProvider;
+import tourGuide.provider.SimulatedLatency;
+import tourGuide.provider.SimulatedLocationProvider;
+import tourGuide.provider.SimulatedPricingProvider;
+import tourGuide.provider.SimulatedRewardProvider;
+import tourGuide.service.RewardPointsCache;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.service.TripPricingService;
+import tourGuide.user.User;
+import tourGuide.user.UserRepository;
+import tourGuide.user.UserReward;
+
+/**
+ * Nearby attraction lookups and user reward bookkeeping, by number of attractions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TourGuideBenchmark {
+	private static final int REWARD_COUNT = 1000;
+
+	@Param({ "26", "1000", "100000" })
+	public int attractionCount;
+
+	private RewardsService rewardsService;
+	private TourGuideService tourGuideService;
+	private List<Attraction> attractions;
+	private VisitedLocation[] visitedLocations;
+	private UserReward[] rewards;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		LocationProvider locationProvider = new SimulatedLocationProvider(attractionCount, SimulatedLatency.NONE, 42);
+		rewardsService = new RewardsService(new AttractionCatalog(locationProvider), new RewardPointsCache(new SimulatedRewardProvider(SimulatedLatency.NONE, 42)));
+		InternalTestHelper.setInternalUserNumber(0);
+		tourGuideService = new TourGuideService(locationProvider, rewardsService, new UserRepository(), new TripPricingService(new SimulatedPricingProvider(SimulatedLatency.NONE, 42)));
+		attractions = rewardsService.getAttractionIndex().getAttractions();
+
+		SplittableRandom random = new SplittableRandom(42);
+		visitedLocations = new VisitedLocation[1024];
+		for(int i = 0; i < visitedLocations.length; i++) {
+			visitedLocations[i] = new VisitedLocation(UUID.randomUUID(), SimulatedLocationProvider.randomLocation(random), new Date());
+		}
+		// one reward per distinct attraction, renaming copies when there are fewer than REWARD_COUNT attractions
+		rewards = new UserReward[REWARD_COUNT];
+		for(int i = 0; i < REWARD_COUNT; i++) {
+			Attraction attraction = attractions.get(i % attractions.size());
+			if(i >= attractions.size()) {
+				attraction = new Attraction(attraction.attractionName + " #" + i, attraction.city, attraction.state, attraction.latitude, attraction.longitude);
+			}
+			rewards[i] = new UserReward(visitedLocations[0], attraction, i);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		rewardsService.shutdown();
+	}
+
+	@Benchmark
+	public List<Attraction> getNearByAttractions() {
+		next = (next + 1) & (visitedLocations.length - 1);
+		return tourGuideService.getNearByAttractions(visitedLocations[next]);
+	}
+
+	/**
+	 * Rewards a new user for REWARD_COUNT distinct attractions, the per-reward cost is reported.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(REWARD_COUNT)
+	public User addUserReward(NewUser newUser) {
+		User user = newUser.user;
+		for(UserReward reward : rewards) {
+			user.addUserReward(reward);
+		}
+		return user;
+	}
+
+	/**
+	 * A user without rewards for every invocation, kept apart so the other benchmarks pay no per-invocation setup.
+	 */
+	@State(Scope.Thread)
+	public static class NewUser {
+		private User user;
+
+		@Setup(Level.Invocation)
+		public void createUser() {
+			user = new User(UUID.randomUUID(), "benchmark", "000", "benchmark@tourGuide.com");
+		}
+	}
+}
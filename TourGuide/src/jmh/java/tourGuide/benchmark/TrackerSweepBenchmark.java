@@ -0,0 +1,87 @@
+package tourGuide.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.helper.InternalUserGenerator;
+import tourGuide.helper.WorkerPools;
+import tourGuide.provider.LocationProvider;
+import tourGuide.provider.SimulatedLatency;
+import tourGuide.provider.SimulatedLocationProvider;
+import tourGuide.provider.SimulatedPricingProvider;
+import tourGuide.provider.SimulatedRewardProvider;
+import tourGuide.service.RewardPointsCache;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.service.TripPricingService;
+import tourGuide.store.UserEventStore;
+import tourGuide.tracker.SweepReport;
+import tourGuide.tracker.TrackingEngine;
+import tourGuide.user.UserRepository;
+
+/**
+ * One full tracking sweep over every user, as the Tracker runs it. Rewards calculations
+ * started by the sweep are waited for too, so their cost is not left to the next iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrackerSweepBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int userCount;
+
+	// per location call, 0 to measure our own code only
+	@Param({ "0", "10" })
+	public long locationLatencyMillis;
+
+	// VIRTUAL needs a Java 21 runtime, it runs as PLATFORM otherwise
+	@Param({ "PLATFORM", "VIRTUAL" })
+	public WorkerPools.Mode executionMode;
+
+	private TourGuideService tourGuideService;
+	private RewardsService rewardsService;
+	private TrackingEngine trackingEngine;
+
+	@Setup
+	public void setUp() {
+		SimulatedLatency latency = new SimulatedLatency(SimulatedLatency.Distribution.FIXED, locationLatencyMillis, locationLatencyMillis, 0, 42);
+		LocationProvider locationProvider = new SimulatedLocationProvider(26, latency, 42);
+		rewardsService = new RewardsService(new AttractionCatalog(locationProvider), new RewardPointsCache(new SimulatedRewardProvider(SimulatedLatency.NONE, 42)),
+				RewardsService.DEFAULT_REWARDS_THREAD_COUNT, executionMode);
+		InternalTestHelper.setInternalUserNumber(userCount);
+		tourGuideService = new TourGuideService(locationProvider, rewardsService, new UserRepository(), new TripPricingService(new SimulatedPricingProvider(SimulatedLatency.NONE, 42)),
+				UserEventStore.NONE, executionMode, new InternalUserGenerator(42), InternalTestHelper.Loading.EAGER);
+		trackingEngine = tourGuideService.getTrackingEngine();
+	}
+
+	@TearDown
+	public void tearDown() {
+		tourGuideService.shutdown();
+		rewardsService.shutdown();
+	}
+
+	@Benchmark
+	public SweepReport sweep() {
+		SweepReport report = trackingEngine.trackUsers(tourGuideService.getUserRepository().getAll());
+		rewardsService.calculateRewards(tourGuideService.getUserRepository().getAll());
+		return report;
+	}
+}
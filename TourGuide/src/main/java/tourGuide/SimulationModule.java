@@ -0,0 +1,64 @@
+package tourGuide;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import io.micrometer.core.instrument.Metrics;
+import tourGuide.provider.LocationProvider;
+import tourGuide.provider.MeteredLocationProvider;
+import tourGuide.provider.MeteredPricingProvider;
+import tourGuide.provider.MeteredRewardProvider;
+import tourGuide.provider.PricingProvider;
+import tourGuide.provider.RewardProvider;
+import tourGuide.provider.SimulatedLatency;
+import tourGuide.provider.SimulatedLocationProvider;
+import tourGuide.provider.SimulatedPricingProvider;
+import tourGuide.provider.SimulatedRewardProvider;
+
+/**
+ * Local, seeded stand-ins for gpsUtil, RewardCentral and TripPricer, for load tests.
+ * Enabled by the "simulation" profile, see application-simulation.properties.
+ */
+@Configuration
+@Profile("simulation")
+public class SimulationModule {
+	
+	@Autowired
+	private Environment environment;
+	
+	@Value("${tourguide.simulation.seed:42}")
+	private long seed;
+	
+	@Value("${tourguide.simulation.attraction-count:26}")
+	private int attractionCount;
+	
+	@Bean
+	public LocationProvider getLocationProvider() {
+		return new MeteredLocationProvider(new SimulatedLocationProvider(attractionCount, getLatency("location", 1), seed), Metrics.globalRegistry);
+	}
+	
+	@Bean
+	public RewardProvider getRewardProvider() {
+		return new MeteredRewardProvider(new SimulatedRewardProvider(getLatency("rewards", 2), seed), Metrics.globalRegistry);
+	}
+	
+	@Bean
+	public PricingProvider getPricingProvider() {
+		return new MeteredPricingProvider(new SimulatedPricingProvider(getLatency("pricing", 3), seed), Metrics.globalRegistry);
+	}
+	
+	// each provider draws from its own sequence, so they do not shift each other's delays
+	private SimulatedLatency getLatency(String provider, long sequence) {
+		String prefix = "tourguide.simulation." + provider + ".";
+		return new SimulatedLatency(
+				environment.getProperty(prefix + "latency-distribution", SimulatedLatency.Distribution.class, SimulatedLatency.Distribution.NONE),
+				environment.getProperty(prefix + "min-latency-millis", Long.class, 0L),
+				environment.getProperty(prefix + "max-latency-millis", Long.class, 0L),
+				environment.getProperty(prefix + "error-rate", Double.class, 0d),
+				seed * 31 + sequence);
+	}
+}
@@ -1,15 +1,31 @@
 package tourGuide;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.jsoniter.output.JsonStream;
 
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
+import tourGuide.ingestion.LocationBatchDecoder;
+import tourGuide.ingestion.LocationIngestionService;
 import tourGuide.service.TourGuideService;
 import tourGuide.user.User;
 import tripPricer.Provider;
@@ -20,6 +36,9 @@ public class TourGuideController {
 	@Autowired
 	TourGuideService tourGuideService;
 	
+	@Autowired
+	LocationIngestionService locationIngestionService;
+	
     @RequestMapping("/")
     public String index() {
         return "Greetings from TourGuide!";
@@ -31,19 +50,13 @@ public class TourGuideController {
 		return JsonStream.serialize(visitedLocation.location);
     }
     
-    //  TODO: Change this method to no longer return a List of Attractions.
- 	//  Instead: Get the closest five tourist attractions to the user - no matter how far away they are.
- 	//  Return a new JSON object that contains:
-    	// Name of Tourist attraction, 
-        // Tourist attractions lat/long, 
-        // The user's location lat/long, 
-        // The distance in miles between the user's location and each of the attractions.
-        // The reward points for visiting each Attraction.
-        //    Note: Attraction reward points can be gathered from RewardsCentral
+    /**
+     * Returns the five attractions closest to the user, no matter how far away they are, with
+     * their location, the user's location, the distance in miles and the reward points they would earn.
+     */
     @RequestMapping("/getNearbyAttractions") 
     public String getNearbyAttractions(@RequestParam String userName) {
-    	VisitedLocation visitedLocation = tourGuideService.getUserLocation(getUser(userName));
-    	return JsonStream.serialize(tourGuideService.getNearByAttractions(visitedLocation));
+    	return JsonStream.serialize(tourGuideService.getClosestAttractions(getUser(userName)));
     }
     
     @RequestMapping("/getRewards") 
@@ -51,19 +64,46 @@ public class TourGuideController {
     	return JsonStream.serialize(tourGuideService.getUserRewards(getUser(userName)));
     }
     
-    @RequestMapping("/getAllCurrentLocations")
-    public String getAllCurrentLocations() {
-    	// TODO: Get a list of every user's most recent location as JSON
-    	//- Note: does not use gpsUtil to query for their current location, 
-    	//        but rather gathers the user's current location from their stored location history.
-    	//
-    	// Return object should be the just a JSON mapping of userId to Locations similar to:
-    	//     {
-    	//        "019b04a9-067a-4c76-8817-ee75088c3822": {"longitude":-48.188821,"latitude":74.84371} 
-    	//        ...
-    	//     }
-    	
-    	return JsonStream.serialize("");
+    /**
+     * Streams a JSON mapping of every user's id to their most recent stored location,
+     * straight to the response without building the whole document in memory.
+     * Large populations can be fetched in pages (offset, limit) and/or shards (shard of shardCount).
+     */
+    @RequestMapping(value = "/getAllCurrentLocations", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void getAllCurrentLocations(@RequestParam(defaultValue = "0") int offset,
+    		@RequestParam(defaultValue = "2147483647") int limit,
+    		@RequestParam(defaultValue = "0") int shard,
+    		@RequestParam(defaultValue = "1") int shardCount,
+    		HttpServletResponse response) throws IOException {
+    	if(offset < 0 || limit < 0 || shardCount < 1 || shard < 0 || shard >= shardCount) {
+    		throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid paging or sharding parameters");
+    	}
+    	response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    	JsonStream stream = new JsonStream(response.getOutputStream(), 8192);
+    	stream.writeObjectStart();
+    	boolean first = true;
+    	Iterator<User> users = tourGuideService.getUsers(shard, shardCount).skip(offset).limit(limit).iterator();
+    	while(users.hasNext()) {
+    		User user = users.next();
+    		Location location = user.getLastLocation();
+    		if(location == null) {
+    			continue;
+    		}
+    		if(!first) {
+    			stream.writeMore();
+    		}
+    		first = false;
+    		stream.writeObjectField(user.getUserId().toString());
+    		stream.writeObjectStart();
+    		stream.writeObjectField("longitude");
+    		stream.writeVal(location.longitude);
+    		stream.writeMore();
+    		stream.writeObjectField("latitude");
+    		stream.writeVal(location.latitude);
+    		stream.writeObjectEnd();
+    	}
+    	stream.writeObjectEnd();
+    	stream.flush();
     }
     
     @RequestMapping("/getTripDeals")
@@ -72,6 +112,33 @@ public class TourGuideController {
     	return JsonStream.serialize(providers);
     }
     
+    /**
+     * Accepts a batch of location fixes pushed by clients, as JSON or as binary records, see {@link LocationBatchDecoder}.
+     * Fixes are recorded asynchronously: 202 once the whole batch is queued, 429 when the queue has no room for it.
+     */
+    @PostMapping(value = "/postLocations", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Void> postLocations(@RequestBody byte[] body) {
+    	return ingest(() -> LocationBatchDecoder.decodeJson(body));
+    }
+    
+    @PostMapping(value = "/postLocations", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> postBinaryLocations(@RequestBody byte[] body) {
+    	return ingest(() -> LocationBatchDecoder.decodeBinary(ByteBuffer.wrap(body)));
+    }
+    
+    private ResponseEntity<Void> ingest(Supplier<List<VisitedLocation>> decoder) {
+    	boolean queued;
+    	try {
+    		queued = locationIngestionService.offer(decoder.get());
+    	} catch (IllegalArgumentException e) {
+    		throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    	}
+    	if(!queued) {
+    		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").build();
+    	}
+    	return ResponseEntity.accepted().build();
+    }
+    
     private User getUser(String userName) {
     	return tourGuideService.getUser(userName);
     }
@@ -1,28 +1,199 @@
 package tourGuide;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import gpsUtil.GpsUtil;
+import io.micrometer.core.instrument.Metrics;
 import rewardCentral.RewardCentral;
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.helper.InternalUserGenerator;
+import tourGuide.helper.WorkerPools;
+import tourGuide.ingestion.LocationIngestionService;
+import tourGuide.provider.GpsUtilLocationProvider;
+import tourGuide.provider.LocationProvider;
+import tourGuide.provider.MeteredLocationProvider;
+import tourGuide.provider.MeteredPricingProvider;
+import tourGuide.provider.MeteredRewardProvider;
+import tourGuide.provider.PricingProvider;
+import tourGuide.provider.RewardCentralRewardProvider;
+import tourGuide.provider.RewardProvider;
+import tourGuide.provider.TripPricerPricingProvider;
+import tourGuide.service.RewardPointsCache;
 import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.service.TripPricingService;
+import tourGuide.store.EventLogStore;
+import tourGuide.store.UserEventStore;
+import tourGuide.tracker.Tracker;
+import tourGuide.tracker.TrackingSchedule;
+import tourGuide.user.LocationRetentionPolicy;
+import tourGuide.user.UserRepository;
+import tripPricer.TripPricer;
 
 @Configuration
 public class TourGuideModule {
+	private Logger logger = LoggerFactory.getLogger(TourGuideModule.class);
+	
+	@Value("${tourguide.attractions.refresh-interval-millis:0}")
+	private long attractionRefreshIntervalMillis;
+	
+	@Value("${tourguide.rewards.points-cache.maximum-size:500000}")
+	private long rewardPointsCacheMaximumSize;
+	
+	@Value("${tourguide.rewards.points-cache.time-to-live-millis:3600000}")
+	private long rewardPointsCacheTimeToLiveMillis;
+	
+	@Value("${tourguide.trip-pricer.api-key:test-server-api-key}")
+	private String tripPricerApiKey;
+	
+	@Value("${tourguide.trip-pricer.thread-count:20}")
+	private int tripPricingThreadCount;
+	
+	@Value("${tourguide.trip-pricer.timeout-millis:5000}")
+	private long tripPricingTimeoutMillis;
+	
+	@Value("${tourguide.trip-pricer.quote-time-to-live-millis:60000}")
+	private long tripQuoteTimeToLiveMillis;
+	
+	@Value("${tourguide.users.location-history.max-count:1000}")
+	private int locationHistoryMaxCount;
+	
+	@Value("${tourguide.users.location-history.max-age-millis:0}")
+	private long locationHistoryMaxAgeMillis;
+	
+	@Value("${tourguide.ingestion.queue-capacity:100000}")
+	private int ingestionQueueCapacity;
+	
+	@Value("${tourguide.ingestion.batch-size:1000}")
+	private int ingestionBatchSize;
+	
+	@Value("${tourguide.tracker.fresh-location-millis:0}")
+	private long trackerFreshLocationMillis;
+	
+	@Value("${tourguide.tracker.drain-timeout-millis:30000}")
+	private long trackerDrainTimeoutMillis;
+	
+	@Value("${tourguide.tracker.polling-interval-millis:300000}")
+	private long trackerPollingIntervalMillis;
+	
+	@Value("${tourguide.tracker.slice-count:60}")
+	private int trackerSliceCount;
+	
+	@Value("${tourguide.tracker.overrun-policy:CATCH_UP}")
+	private TrackingSchedule.OverrunPolicy trackerOverrunPolicy;
+	
+	@Value("${tourguide.store.directory:}")
+	private String storeDirectory;
+	
+	@Value("${tourguide.store.segment-records:262144}")
+	private int storeSegmentRecords;
+	
+	@Value("${tourguide.store.commit-interval-millis:10}")
+	private long storeCommitIntervalMillis;
+	
+	@Value("${tourguide.users.internal.seed:}")
+	private String internalUserSeed;
+	
+	@Value("${tourguide.users.internal.loading:EAGER}")
+	private InternalTestHelper.Loading internalUserLoading;
+	
+	@Value("${tourguide.execution.mode:PLATFORM}")
+	private WorkerPools.Mode executionMode;
+	
+	@PostConstruct
+	public void configureLocationRetention() {
+		LocationRetentionPolicy.setDefaultPolicy(new LocationRetentionPolicy(locationHistoryMaxCount, locationHistoryMaxAgeMillis));
+	}
 	
 	@Bean
-	public GpsUtil getGpsUtil() {
-		return new GpsUtil();
+	@Profile("!simulation")
+	public LocationProvider getLocationProvider() {
+		return new MeteredLocationProvider(new GpsUtilLocationProvider(new GpsUtil()), Metrics.globalRegistry);
 	}
 	
 	@Bean
-	public RewardsService getRewardsService() {
-		return new RewardsService(getGpsUtil(), getRewardCentral());
+	@Profile("!simulation")
+	public RewardProvider getRewardProvider() {
+		return new MeteredRewardProvider(new RewardCentralRewardProvider(new RewardCentral()), Metrics.globalRegistry);
+	}
+	
+	@Bean
+	@Profile("!simulation")
+	public PricingProvider getPricingProvider() {
+		return new MeteredPricingProvider(new TripPricerPricingProvider(new TripPricer()), Metrics.globalRegistry);
+	}
+	
+	@Bean
+	public AttractionCatalog getAttractionCatalog(LocationProvider locationProvider) {
+		return new AttractionCatalog(locationProvider, attractionRefreshIntervalMillis);
+	}
+	
+	@Bean
+	public RewardsService getRewardsService(AttractionCatalog attractionCatalog, RewardPointsCache rewardPointsCache, UserEventStore userEventStore) {
+		RewardsService rewardsService = new RewardsService(attractionCatalog, rewardPointsCache, RewardsService.DEFAULT_REWARDS_THREAD_COUNT, executionMode);
+		rewardsService.setUserEventStore(userEventStore);
+		return rewardsService;
+	}
+	
+	@Bean
+	public RewardPointsCache getRewardPointsCache(RewardProvider rewardProvider) {
+		return new RewardPointsCache(rewardProvider, rewardPointsCacheMaximumSize, rewardPointsCacheTimeToLiveMillis);
+	}
+	
+	@Bean
+	public TripPricingService getTripPricingService(PricingProvider pricingProvider) {
+		return new TripPricingService(pricingProvider, tripPricerApiKey, tripPricingThreadCount, tripPricingTimeoutMillis, tripQuoteTimeToLiveMillis, executionMode);
+	}
+	
+	@Bean
+	public TourGuideService getTourGuideService(LocationProvider locationProvider, RewardsService rewardsService, UserRepository userRepository,
+			TripPricingService tripPricingService, UserEventStore userEventStore) {
+		InternalUserGenerator internalUserGenerator = internalUserSeed.isEmpty() ? new InternalUserGenerator() : new InternalUserGenerator(Long.parseLong(internalUserSeed));
+		return new TourGuideService(locationProvider, rewardsService, userRepository, tripPricingService, userEventStore, executionMode,
+				internalUserGenerator, internalUserLoading);
+	}
+	
+	@Bean(destroyMethod = "close")
+	public UserEventStore getUserEventStore() throws IOException {
+		if(storeDirectory.isEmpty()) {
+			return UserEventStore.NONE;
+		}
+		if(internalUserSeed.isEmpty()) {
+			logger.warn("tourguide.users.internal.seed is not set: internal users get new ids on every start, "
+					+ "so the records of the previous runs in " + storeDirectory + " will not be restored");
+		}
+		return new EventLogStore(Paths.get(storeDirectory), storeSegmentRecords, storeCommitIntervalMillis);
+	}
+	
+	@Bean
+	@ConditionalOnProperty(name = "tourguide.tracker.enabled", matchIfMissing = true)
+	public Tracker getTracker(TourGuideService tourGuideService) {
+		TrackingSchedule schedule = new TrackingSchedule(trackerPollingIntervalMillis, trackerSliceCount, trackerOverrunPolicy, trackerFreshLocationMillis);
+		Tracker tracker = new Tracker(tourGuideService, tourGuideService.getTrackingEngine(), schedule);
+		tracker.setDrainTimeoutMillis(trackerDrainTimeoutMillis);
+		return tracker;
+	}
+	
+	@Bean(destroyMethod = "shutdown")
+	public LocationIngestionService getLocationIngestionService(TourGuideService tourGuideService) {
+		return new LocationIngestionService(tourGuideService, ingestionQueueCapacity, ingestionBatchSize);
 	}
 	
 	@Bean
-	public RewardCentral getRewardCentral() {
-		return new RewardCentral();
+	public UserRepository getUserRepository() {
+		return new UserRepository();
 	}
 	
 }
@@ -0,0 +1,168 @@
+package tourGuide.attraction;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import tourGuide.provider.GpsUtilLocationProvider;
+import tourGuide.provider.LocationProvider;
+
+/**
+ * Shared, cached view of the location provider's attractions.
+ *
+ * gpsUtil builds a new attraction list on every call, so the catalog loads it once and
+ * serves an immutable {@link AttractionIndex} snapshot until it is refreshed, either on
+ * demand or once the refresh interval has elapsed. While one reader reloads an expired
+ * snapshot the others keep being served the previous one. Refresh listeners are told of every
+ * snapshot replacing a previous one.
+ */
+public class AttractionCatalog implements MeterBinder {
+	public static final long ON_DEMAND = 0;
+	private Logger logger = LoggerFactory.getLogger(AttractionCatalog.class);
+	private final LocationProvider locationProvider;
+	private final long refreshIntervalMillis;
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong refreshes = new AtomicLong();
+	private final List<BiConsumer<AttractionIndex, AttractionIndex>> refreshListeners = new CopyOnWriteArrayList<>();
+	private volatile Snapshot snapshot;
+
+	public AttractionCatalog(GpsUtil gpsUtil) {
+		this(new GpsUtilLocationProvider(gpsUtil), ON_DEMAND);
+	}
+
+	public AttractionCatalog(LocationProvider locationProvider) {
+		this(locationProvider, ON_DEMAND);
+	}
+
+	/**
+	 * @param refreshIntervalMillis age after which a snapshot is reloaded, or {@link #ON_DEMAND}
+	 * to only reload on {@link #refresh()}
+	 */
+	public AttractionCatalog(LocationProvider locationProvider, long refreshIntervalMillis) {
+		this.locationProvider = locationProvider;
+		this.refreshIntervalMillis = refreshIntervalMillis;
+	}
+
+	/**
+	 * @return the current attraction snapshot, loading it if there is none yet or it expired
+	 */
+	public AttractionIndex getSnapshot() {
+		Snapshot current = snapshot;
+		if(current == null) {
+			return loadFirstSnapshot();
+		}
+		if(isExpired(current) && refreshing.compareAndSet(false, true)) {
+			try {
+				misses.incrementAndGet();
+				return reload().index;
+			} finally {
+				refreshing.set(false);
+			}
+		}
+		hits.incrementAndGet();
+		return current.index;
+	}
+
+	public List<Attraction> getAttractions() {
+		return getSnapshot().getAttractions();
+	}
+
+	/**
+	 * Reloads the attractions from the location provider and publishes them as the new snapshot.
+	 */
+	public AttractionIndex refresh() {
+		return reload().index;
+	}
+
+	/**
+	 * Registers a listener called with the previous and the new snapshot whenever a snapshot is replaced.
+	 * Listeners are called while the catalog holds its reload lock, so they should hand lengthy work off.
+	 */
+	public void addRefreshListener(BiConsumer<AttractionIndex, AttractionIndex> listener) {
+		refreshListeners.add(listener);
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getRefreshCount() {
+		return refreshes.get();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("tourguide.attractions.catalog.requests", hits, AtomicLong::get)
+				.tag("result", "hit")
+				.description("Attraction lookups, by whether the cached snapshot could serve them")
+				.register(registry);
+		FunctionCounter.builder("tourguide.attractions.catalog.requests", misses, AtomicLong::get)
+				.tag("result", "miss")
+				.description("Attraction lookups, by whether the cached snapshot could serve them")
+				.register(registry);
+		FunctionCounter.builder("tourguide.attractions.catalog.refreshes", refreshes, AtomicLong::get)
+				.description("Attraction snapshots loaded from the location provider")
+				.register(registry);
+		Gauge.builder("tourguide.attractions.catalog.size", this, c -> c.snapshot == null ? 0 : c.snapshot.index.size())
+				.description("Attractions in the current snapshot")
+				.register(registry);
+	}
+
+	private synchronized AttractionIndex loadFirstSnapshot() {
+		if(snapshot != null) {
+			hits.incrementAndGet();
+			return snapshot.index;
+		}
+		misses.incrementAndGet();
+		return reload().index;
+	}
+
+	private synchronized Snapshot reload() {
+		Snapshot previous = snapshot;
+		Snapshot loaded = new Snapshot(new AttractionIndex(locationProvider.getAttractions()), System.currentTimeMillis());
+		snapshot = loaded;
+		refreshes.incrementAndGet();
+		logger.debug("Loaded " + loaded.index.size() + " attractions");
+		if(previous != null) {
+			for(BiConsumer<AttractionIndex, AttractionIndex> listener : refreshListeners) {
+				try {
+					listener.accept(previous.index, loaded.index);
+				} catch (RuntimeException e) {
+					logger.error("Attraction refresh listener failed", e);
+				}
+			}
+		}
+		return loaded;
+	}
+
+	private boolean isExpired(Snapshot current) {
+		return refreshIntervalMillis > ON_DEMAND && System.currentTimeMillis() - current.loadedAt >= refreshIntervalMillis;
+	}
+
+	private static class Snapshot {
+		private final AttractionIndex index;
+		private final long loadedAt;
+
+		Snapshot(AttractionIndex index, long loadedAt) {
+			this.index = index;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
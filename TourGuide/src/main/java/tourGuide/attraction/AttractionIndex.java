@@ -0,0 +1,271 @@
+package tourGuide.attraction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * Immutable k-d tree over a set of attractions.
+ *
+ * Attractions are stored as points on the unit sphere. The straight-line (chord) distance
+ * between two such points grows with their great-circle distance, so radius and nearest
+ * neighbour searches can prune whole subtrees with plain coordinate comparisons.
+ * The {@link GeoPoint} of every attraction is kept for exact distance computations.
+ */
+public class AttractionIndex {
+	// matches RewardsService.getDistance, which counts 60 nautical miles per degree of arc
+	public static final double EARTH_RADIUS_MILES = 1.15077945 * 60 * 180 / Math.PI;
+
+	private final List<Attraction> attractions;
+	private final Map<Attraction, GeoPoint> geoPoints;
+	// tree nodes, the root of a range [lo, hi) being stored at its middle
+	private final Attraction[] nodes;
+	private final int[] ordinals;
+	private final double[][] coordinates;
+	private final byte[] splitAxes;
+
+	public AttractionIndex(List<Attraction> attractions) {
+		this.attractions = Collections.unmodifiableList(new ArrayList<>(attractions));
+		int size = attractions.size();
+		nodes = new Attraction[size];
+		ordinals = new int[size];
+		coordinates = new double[size][];
+		splitAxes = new byte[size];
+		geoPoints = new IdentityHashMap<>(size);
+		for(int i = 0; i < size; i++) {
+			nodes[i] = attractions.get(i);
+			ordinals[i] = i;
+			GeoPoint geoPoint = GeoPoint.of(nodes[i]);
+			geoPoints.put(nodes[i], geoPoint);
+			coordinates[i] = geoPoint.toUnitVector();
+		}
+		build(0, size);
+	}
+
+	/**
+	 * @return the indexed attractions, in the order they were given
+	 */
+	public List<Attraction> getAttractions() {
+		return attractions;
+	}
+
+	public int size() {
+		return attractions.size();
+	}
+
+	/**
+	 * @return the precomputed point of an indexed attraction, or a new one for any other attraction
+	 */
+	public GeoPoint getGeoPoint(Attraction attraction) {
+		GeoPoint geoPoint = geoPoints.get(attraction);
+		return geoPoint != null ? geoPoint : GeoPoint.of(attraction);
+	}
+
+	/**
+	 * @return every attraction at most the given number of miles away, in catalog order
+	 */
+	public List<Attraction> findWithin(Location location, double miles) {
+		return findWithin(GeoPoint.of(location), miles);
+	}
+
+	/**
+	 * @return every attraction at most the given number of miles away, in catalog order
+	 */
+	public List<Attraction> findWithin(GeoPoint point, double miles) {
+		if(miles < 0) {
+			return Collections.emptyList();
+		}
+		if(miles / EARTH_RADIUS_MILES >= Math.PI) {
+			return attractions;
+		}
+		double chord = 2 * Math.sin(miles / EARTH_RADIUS_MILES / 2);
+		int[] found = new int[nodes.length];
+		int count = collectWithin(point.toUnitVector(), chord * chord, 0, nodes.length, found, 0);
+		Arrays.sort(found, 0, count);
+		List<Attraction> result = new ArrayList<>(count);
+		for(int i = 0; i < count; i++) {
+			result.add(attractions.get(found[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the k attractions closest to the location, nearest first
+	 */
+	public List<Attraction> findNearest(Location location, int k) {
+		return findNearest(GeoPoint.of(location), k);
+	}
+
+	/**
+	 * @return the k attractions closest to the point, nearest first
+	 */
+	public List<Attraction> findNearest(GeoPoint point, int k) {
+		int limit = Math.min(k, nodes.length);
+		if(limit <= 0) {
+			return Collections.emptyList();
+		}
+		Nearest nearest = new Nearest(limit);
+		collectNearest(point.toUnitVector(), 0, nodes.length, nearest);
+		List<Attraction> result = new ArrayList<>(nearest.size);
+		for(int i = 0; i < nearest.size; i++) {
+			result.add(nodes[nearest.nodes[i]]);
+		}
+		return result;
+	}
+
+	private void build(int lo, int hi) {
+		if(hi - lo <= 1) {
+			return;
+		}
+		int axis = widestAxis(lo, hi);
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi, mid, axis);
+		splitAxes[mid] = (byte) axis;
+		build(lo, mid);
+		build(mid + 1, hi);
+	}
+
+	private int widestAxis(int lo, int hi) {
+		int widest = 0;
+		double widestSpread = -1;
+		for(int axis = 0; axis < 3; axis++) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for(int i = lo; i < hi; i++) {
+				min = Math.min(min, coordinates[i][axis]);
+				max = Math.max(max, coordinates[i][axis]);
+			}
+			if(max - min > widestSpread) {
+				widestSpread = max - min;
+				widest = axis;
+			}
+		}
+		return widest;
+	}
+
+	// quickselect: puts the median of [lo, hi) on the axis at position k
+	private void select(int lo, int hi, int k, int axis) {
+		int left = lo;
+		int right = hi - 1;
+		while(left < right) {
+			double pivot = coordinates[(left + right) >>> 1][axis];
+			int i = left;
+			int j = right;
+			while(i <= j) {
+				while(coordinates[i][axis] < pivot) {
+					i++;
+				}
+				while(coordinates[j][axis] > pivot) {
+					j--;
+				}
+				if(i <= j) {
+					swap(i++, j--);
+				}
+			}
+			if(k <= j) {
+				right = j;
+			} else if(k >= i) {
+				left = i;
+			} else {
+				break;
+			}
+		}
+	}
+
+	private void swap(int i, int j) {
+		Attraction node = nodes[i];
+		nodes[i] = nodes[j];
+		nodes[j] = node;
+		int ordinal = ordinals[i];
+		ordinals[i] = ordinals[j];
+		ordinals[j] = ordinal;
+		double[] coordinate = coordinates[i];
+		coordinates[i] = coordinates[j];
+		coordinates[j] = coordinate;
+	}
+
+	private int collectWithin(double[] target, double maxChordSquared, int lo, int hi, int[] found, int count) {
+		if(lo >= hi) {
+			return count;
+		}
+		int mid = (lo + hi) >>> 1;
+		if(chordSquared(target, coordinates[mid]) <= maxChordSquared) {
+			found[count++] = ordinals[mid];
+		}
+		double delta = target[splitAxes[mid]] - coordinates[mid][splitAxes[mid]];
+		if(delta <= 0 || delta * delta <= maxChordSquared) {
+			count = collectWithin(target, maxChordSquared, lo, mid, found, count);
+		}
+		if(delta >= 0 || delta * delta <= maxChordSquared) {
+			count = collectWithin(target, maxChordSquared, mid + 1, hi, found, count);
+		}
+		return count;
+	}
+
+	private void collectNearest(double[] target, int lo, int hi, Nearest nearest) {
+		if(lo >= hi) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		nearest.offer(mid, chordSquared(target, coordinates[mid]));
+		double delta = target[splitAxes[mid]] - coordinates[mid][splitAxes[mid]];
+		boolean lowerFirst = delta <= 0;
+		if(lowerFirst) {
+			collectNearest(target, lo, mid, nearest);
+		} else {
+			collectNearest(target, mid + 1, hi, nearest);
+		}
+		if(delta * delta <= nearest.worst()) {
+			if(lowerFirst) {
+				collectNearest(target, mid + 1, hi, nearest);
+			} else {
+				collectNearest(target, lo, mid, nearest);
+			}
+		}
+	}
+
+	private static double chordSquared(double[] a, double[] b) {
+		double dx = a[0] - b[0];
+		double dy = a[1] - b[1];
+		double dz = a[2] - b[2];
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Bounded list of the closest nodes seen so far, kept sorted by distance.
+	 */
+	private static class Nearest {
+		private final int[] nodes;
+		private final double[] distances;
+		private int size;
+
+		Nearest(int capacity) {
+			nodes = new int[capacity];
+			distances = new double[capacity];
+		}
+
+		double worst() {
+			return size < nodes.length ? Double.POSITIVE_INFINITY : distances[size - 1];
+		}
+
+		void offer(int node, double distance) {
+			if(distance >= worst()) {
+				return;
+			}
+			int i = size < nodes.length ? size++ : size - 1;
+			while(i > 0 && distances[i - 1] > distance) {
+				nodes[i] = nodes[i - 1];
+				distances[i] = distances[i - 1];
+				i--;
+			}
+			nodes[i] = node;
+			distances[i] = distance;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package tourGuide.attraction;
+
+import gpsUtil.location.Location;
+
+/**
+ * A location with its trigonometry precomputed, for repeated great-circle distance checks.
+ *
+ * Distances are computed with the same spherical law of cosines as RewardsService always
+ * used, so they are identical to the historical results while saving the radian conversions
+ * and three of the four sin/cos calls per pair.
+ */
+public class GeoPoint {
+	private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+	// slack on the latitude pre-filter, so rounding never rejects a point the exact check would accept
+	private static final double PRE_FILTER_MARGIN = 1e-9;
+
+	private final double latitude;
+	private final double longitude;
+	private final double sinLatitude;
+	private final double cosLatitude;
+
+	public GeoPoint(double latitude, double longitude) {
+		this.latitude = Math.toRadians(latitude);
+		this.longitude = Math.toRadians(longitude);
+		this.sinLatitude = Math.sin(this.latitude);
+		this.cosLatitude = Math.cos(this.latitude);
+	}
+
+	public static GeoPoint of(Location location) {
+		return new GeoPoint(location.latitude, location.longitude);
+	}
+
+	/**
+	 * @return the great-circle distance in statute miles
+	 */
+	public double distanceTo(GeoPoint other) {
+		double angle = Math.acos(sinLatitude * other.sinLatitude
+				+ cosLatitude * other.cosLatitude * Math.cos(longitude - other.longitude));
+
+		double nauticalMiles = 60 * Math.toDegrees(angle);
+		return STATUTE_MILES_PER_NAUTICAL_MILE * nauticalMiles;
+	}
+
+	/**
+	 * @return whether the other point is at most the given number of statute miles away.
+	 * Points further apart in latitude alone are rejected without any trigonometry.
+	 */
+	public boolean isWithin(GeoPoint other, double miles) {
+		if(Math.abs(latitude - other.latitude) > miles / AttractionIndex.EARTH_RADIUS_MILES + PRE_FILTER_MARGIN) {
+			return false;
+		}
+		return distanceTo(other) <= miles;
+	}
+
+	double[] toUnitVector() {
+		return new double[] { cosLatitude * Math.cos(longitude), cosLatitude * Math.sin(longitude), sinLatitude };
+	}
+}
@@ -0,0 +1,54 @@
+package tourGuide.dto;
+
+/**
+ * An attraction close to a user, as returned by /getNearbyAttractions.
+ */
+public class NearbyAttraction {
+	private final String attractionName;
+	private final double attractionLatitude;
+	private final double attractionLongitude;
+	private final double userLatitude;
+	private final double userLongitude;
+	// in miles
+	private final double distance;
+	private final int rewardPoints;
+
+	public NearbyAttraction(String attractionName, double attractionLatitude, double attractionLongitude,
+			double userLatitude, double userLongitude, double distance, int rewardPoints) {
+		this.attractionName = attractionName;
+		this.attractionLatitude = attractionLatitude;
+		this.attractionLongitude = attractionLongitude;
+		this.userLatitude = userLatitude;
+		this.userLongitude = userLongitude;
+		this.distance = distance;
+		this.rewardPoints = rewardPoints;
+	}
+
+	public String getAttractionName() {
+		return attractionName;
+	}
+
+	public double getAttractionLatitude() {
+		return attractionLatitude;
+	}
+
+	public double getAttractionLongitude() {
+		return attractionLongitude;
+	}
+
+	public double getUserLatitude() {
+		return userLatitude;
+	}
+
+	public double getUserLongitude() {
+		return userLongitude;
+	}
+
+	public double getDistance() {
+		return distance;
+	}
+
+	public int getRewardPoints() {
+		return rewardPoints;
+	}
+}
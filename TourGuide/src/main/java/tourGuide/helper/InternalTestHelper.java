@@ -2,6 +2,11 @@ package tourGuide.helper;
 
 public class InternalTestHelper {
 
+	/**
+	 * EAGER users are generated before the service is constructed, BACKGROUND ones while it already serves requests.
+	 */
+	public enum Loading { EAGER, BACKGROUND }
+
 	// Set this default up to 100,000 for testing
 	private static int internalUserNumber = 100;
 	
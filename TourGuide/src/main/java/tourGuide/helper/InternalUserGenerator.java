@@ -0,0 +1,81 @@
+package tourGuide.helper;
+
+import java.util.Date;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.user.User;
+
+/**
+ * Generates the internal test users in parallel.
+ *
+ * User number n is generated from its own SplittableRandom, seeded from the generator's seed and n,
+ * so a generator built with a given seed produces the same users, ids included, whatever the order
+ * or the threads they are generated on. Visit times are drawn relative to a reference time read once.
+ */
+public class InternalUserGenerator {
+	public static final int LOCATION_HISTORY_SIZE = 3;
+	public static final int LOCATION_HISTORY_DAYS = 30;
+	private static final double MAX_LATITUDE = 85.05112878;
+	private static final double MAX_LONGITUDE = 180;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private final long seed;
+	private final long referenceTime;
+
+	/**
+	 * Generates a different population on every run.
+	 */
+	public InternalUserGenerator() {
+		this(ThreadLocalRandom.current().nextLong());
+	}
+
+	public InternalUserGenerator(long seed) {
+		this(seed, System.currentTimeMillis());
+	}
+
+	public InternalUserGenerator(long seed, long referenceTime) {
+		this.seed = seed;
+		this.referenceTime = referenceTime;
+	}
+
+	/**
+	 * @return a parallel stream of the users numbered 0 to count - 1
+	 */
+	public Stream<User> generate(int count) {
+		return IntStream.range(0, count).parallel().mapToObj(this::generateUser);
+	}
+
+	public User generateUser(int number) {
+		SplittableRandom random = new SplittableRandom(mix(seed + number * GOLDEN_GAMMA));
+		String userName = "internalUser" + number;
+		User user = new User(randomUUID(random), userName, "000", userName + "@tourGuide.com");
+		for(int i = 0; i < LOCATION_HISTORY_SIZE; i++) {
+			Location location = new Location(random.nextDouble(-MAX_LATITUDE, MAX_LATITUDE), random.nextDouble(-MAX_LONGITUDE, MAX_LONGITUDE));
+			Date timeVisited = new Date(referenceTime - TimeUnit.DAYS.toMillis(random.nextInt(LOCATION_HISTORY_DAYS)));
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), location, timeVisited));
+		}
+		return user;
+	}
+
+	/**
+	 * @return a version 4 UUID drawn from the random
+	 */
+	private static UUID randomUUID(SplittableRandom random) {
+		long most = (random.nextLong() & ~0xF000L) | 0x4000L;
+		long least = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		return new UUID(most, least);
+	}
+
+	// SplitMix64 finalizer, so neighbouring user numbers get unrelated seeds
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,24 @@
+package tourGuide.helper;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates daemon threads named after the pool they belong to, so worker pools never
+ * keep the JVM alive and show up clearly in thread dumps.
+ */
+public class NamedThreadFactory implements ThreadFactory {
+	private final String poolName;
+	private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+	public NamedThreadFactory(String poolName) {
+		this.poolName = poolName;
+	}
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, poolName + "-" + threadNumber.getAndIncrement());
+		thread.setDaemon(true);
+		return thread;
+	}
+}
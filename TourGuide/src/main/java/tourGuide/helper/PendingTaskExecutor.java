@@ -0,0 +1,70 @@
+package tourGuide.helper;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on a worker pool and keeps the futures of the tasks not completed yet.
+ *
+ * A pool shut down with shutdownNow drops its queued tasks, and a bounded virtual pool drops the
+ * tasks still waiting for a permit, so their CompletableFutures would never complete and anyone
+ * joining them would hang. Shutting down through this executor fails those futures instead.
+ */
+public class PendingTaskExecutor {
+	private final ExecutorService executorService;
+	private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+
+	public PendingTaskExecutor(ExecutorService executorService) {
+		this.executorService = executorService;
+	}
+
+	/**
+	 * @return a future completed with the result of the task, or failed if the pool rejects or drops it
+	 */
+	public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		pending.add(future);
+		future.whenComplete((result, e) -> pending.remove(future));
+		try {
+			executorService.execute(() -> {
+				if(future.isDone()) {
+					return;
+				}
+				try {
+					future.complete(task.get());
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	public CompletableFuture<Void> runAsync(Runnable task) {
+		return supplyAsync(() -> {
+			task.run();
+			return null;
+		});
+	}
+
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+
+	/**
+	 * Shuts the pool down, interrupting the running tasks, and fails the futures of every task not completed yet.
+	 */
+	public void shutdownNow() {
+		executorService.shutdownNow();
+		RejectedExecutionException dropped = new RejectedExecutionException("Worker pool shut down before the task completed");
+		for(CompletableFuture<?> future : pending) {
+			future.completeExceptionally(dropped);
+		}
+	}
+}
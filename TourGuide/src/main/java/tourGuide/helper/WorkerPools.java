@@ -0,0 +1,212 @@
+package tourGuide.helper;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Creates the worker pools that make blocking provider calls.
+ *
+ * In {@link Mode#PLATFORM} mode a pool is a fixed set of platform threads. In
+ * {@link Mode#VIRTUAL} mode every task gets its own virtual thread and a semaphore caps the
+ * tasks running at once, so a high cap costs no platform threads. Virtual threads need a
+ * Java 21 runtime; they are looked up reflectively so the build can keep targeting Java 8,
+ * and pools fall back to platform threads on older runtimes.
+ *
+ * The mode is chosen by whoever builds the pool, TourGuideModule passing the configured one.
+ */
+public final class WorkerPools {
+	private static final Logger logger = LoggerFactory.getLogger(WorkerPools.class);
+	private static final VirtualThreads virtualThreads = findVirtualThreads();
+
+	public enum Mode {
+		PLATFORM,
+		VIRTUAL
+	}
+
+	private WorkerPools() {
+	}
+
+	public static boolean isVirtualThreadSupported() {
+		return virtualThreads != null;
+	}
+
+	/**
+	 * @return a pool of maxConcurrency platform threads
+	 */
+	public static ExecutorService newWorkerPool(String name, int maxConcurrency) {
+		return newWorkerPool(name, maxConcurrency, Mode.PLATFORM);
+	}
+
+	/**
+	 * @return a pool running at most maxConcurrency tasks at once, on virtual threads if the
+	 * mode asks for them and the runtime supports them
+	 */
+	public static ExecutorService newWorkerPool(String name, int maxConcurrency, Mode mode) {
+		if(mode == Mode.VIRTUAL) {
+			if(isVirtualThreadSupported()) {
+				return new BoundedExecutorService(virtualThreads.newThreadPerTaskExecutor(name), maxConcurrency);
+			}
+			logger.warn("Virtual threads need Java 21 or later, " + name + " will use platform threads");
+		}
+		return Executors.newFixedThreadPool(maxConcurrency, new NamedThreadFactory(name));
+	}
+
+	/**
+	 * Publishes the pool's metrics as the executor metrics of the given name, see {@link ExecutorServiceMetrics}.
+	 * Micrometer only knows the queue and workers of platform pools, so for a virtual thread pool the
+	 * tasks holding a permit and the tasks waiting for one are published under the same names:
+	 * executor.active, executor.queued, executor.pool.size (threads of either kind) and executor.completed.
+	 */
+	public static ExecutorService monitor(ExecutorService pool, String name) {
+		if(pool instanceof BoundedExecutorService) {
+			BoundedExecutorService bounded = (BoundedExecutorService) pool;
+			Gauge.builder("executor.active", bounded, BoundedExecutorService::getActiveCount)
+					.tag("name", name)
+					.description("The approximate number of threads that are actively executing tasks")
+					.baseUnit("threads")
+					.register(Metrics.globalRegistry);
+			Gauge.builder("executor.queued", bounded, BoundedExecutorService::getQueuedCount)
+					.tag("name", name)
+					.description("The approximate number of tasks that are queued for execution")
+					.baseUnit("tasks")
+					.register(Metrics.globalRegistry);
+			Gauge.builder("executor.pool.size", bounded, b -> b.getActiveCount() + b.getQueuedCount())
+					.tag("name", name)
+					.description("The current number of threads in the pool")
+					.baseUnit("threads")
+					.register(Metrics.globalRegistry);
+			FunctionCounter.builder("executor.completed", bounded, BoundedExecutorService::getCompletedCount)
+					.tag("name", name)
+					.description("The approximate total number of tasks that have completed execution")
+					.baseUnit("tasks")
+					.register(Metrics.globalRegistry);
+		}
+		return ExecutorServiceMetrics.monitor(Metrics.globalRegistry, pool, name);
+	}
+
+	private static VirtualThreads findVirtualThreads() {
+		try {
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Method name = builderClass.getMethod("name", String.class, long.class);
+			Method factory = builderClass.getMethod("factory");
+			Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return poolName -> {
+				try {
+					Object builder = name.invoke(ofVirtual.invoke(null), poolName + "-", 1L);
+					return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory.invoke(builder));
+				} catch (ReflectiveOperationException e) {
+					throw new IllegalStateException("Unable to create virtual threads", e);
+				}
+			};
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	@FunctionalInterface
+	private interface VirtualThreads {
+		ExecutorService newThreadPerTaskExecutor(String poolName);
+	}
+
+	/**
+	 * Runs each task on the delegate once a permit is available, waiting on the task's own
+	 * thread so nothing queues in front of the delegate.
+	 */
+	private static class BoundedExecutorService extends AbstractExecutorService {
+		private final ExecutorService delegate;
+		private final int maxConcurrency;
+		private final Semaphore permits;
+		private final AtomicInteger waiting = new AtomicInteger();
+		private final AtomicLong completed = new AtomicLong();
+
+		BoundedExecutorService(ExecutorService delegate, int maxConcurrency) {
+			this.delegate = delegate;
+			this.maxConcurrency = maxConcurrency;
+			this.permits = new Semaphore(maxConcurrency);
+		}
+
+		int getActiveCount() {
+			return maxConcurrency - permits.availablePermits();
+		}
+
+		int getQueuedCount() {
+			return waiting.get();
+		}
+
+		long getCompletedCount() {
+			return completed.get();
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			if(command == null) {
+				throw new NullPointerException();
+			}
+			waiting.incrementAndGet();
+			try {
+				delegate.execute(() -> {
+					try {
+						permits.acquire();
+					} catch (InterruptedException e) {
+						// the pool was shut down before the task started, like a task still queued in a platform pool
+						Thread.currentThread().interrupt();
+						return;
+					} finally {
+						waiting.decrementAndGet();
+					}
+					try {
+						command.run();
+					} finally {
+						permits.release();
+						completed.incrementAndGet();
+					}
+				});
+			} catch (RuntimeException e) {
+				waiting.decrementAndGet();
+				throw e;
+			}
+		}
+
+		@Override
+		public void shutdown() {
+			delegate.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return delegate.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return delegate.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return delegate.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return delegate.awaitTermination(timeout, unit);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package tourGuide.ingestion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.jsoniter.JsonIterator;
+import com.jsoniter.spi.JsonException;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Decodes the batches of location fixes pushed by clients, in either format:
+ * <ul>
+ * <li>JSON: an array of {"userId", "latitude", "longitude", "timeVisited"} objects, the time in epoch millis,</li>
+ * <li>binary: records of {@value #BINARY_RECORD_SIZE} big-endian bytes, the user id as two longs then
+ * the latitude and longitude as doubles and the time as epoch millis.</li>
+ * </ul>
+ * Fixes are read straight into VisitedLocations, without an intermediate object per fix.
+ */
+public class LocationBatchDecoder {
+	public static final int BINARY_RECORD_SIZE = 40;
+
+	private LocationBatchDecoder() {
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the batch is malformed or a fix is incomplete or out of range
+	 */
+	public static List<VisitedLocation> decodeJson(byte[] body) {
+		List<VisitedLocation> fixes = new ArrayList<>();
+		try {
+			JsonIterator iterator = JsonIterator.parse(body);
+			while(iterator.readArray()) {
+				UUID userId = null;
+				double latitude = Double.NaN;
+				double longitude = Double.NaN;
+				Long timeVisited = null;
+				for(String field = iterator.readObject(); field != null; field = iterator.readObject()) {
+					switch(field) {
+					case "userId":
+						String id = iterator.readString();
+						if(id == null) {
+							throw new IllegalArgumentException("Fix " + fixes.size() + " has a null userId");
+						}
+						userId = UUID.fromString(id);
+						break;
+					case "latitude":
+						latitude = iterator.readDouble();
+						break;
+					case "longitude":
+						longitude = iterator.readDouble();
+						break;
+					case "timeVisited":
+						timeVisited = iterator.readLong();
+						break;
+					default:
+						iterator.skip();
+					}
+				}
+				if(userId == null || timeVisited == null) {
+					throw new IllegalArgumentException("Fix " + fixes.size() + " lacks a userId or a timeVisited");
+				}
+				fixes.add(toVisitedLocation(fixes.size(), userId, latitude, longitude, timeVisited));
+			}
+		} catch (JsonException | IOException | IndexOutOfBoundsException e) {
+			// truncated documents make jsoniter read past the end of the buffer
+			throw new IllegalArgumentException("Malformed location batch: " + e.getMessage(), e);
+		}
+		return fixes;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the batch is not made of whole records or a fix is out of range
+	 */
+	public static List<VisitedLocation> decodeBinary(ByteBuffer body) {
+		if(body.remaining() % BINARY_RECORD_SIZE != 0) {
+			throw new IllegalArgumentException("Location batch of " + body.remaining() + " bytes is not made of " + BINARY_RECORD_SIZE + " byte records");
+		}
+		List<VisitedLocation> fixes = new ArrayList<>(body.remaining() / BINARY_RECORD_SIZE);
+		while(body.hasRemaining()) {
+			UUID userId = new UUID(body.getLong(), body.getLong());
+			fixes.add(toVisitedLocation(fixes.size(), userId, body.getDouble(), body.getDouble(), body.getLong()));
+		}
+		return fixes;
+	}
+
+	private static VisitedLocation toVisitedLocation(int index, UUID userId, double latitude, double longitude, long timeVisited) {
+		if(!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+			throw new IllegalArgumentException("Fix " + index + " has invalid coordinates " + latitude + ", " + longitude);
+		}
+		return new VisitedLocation(userId, new Location(latitude, longitude), new Date(timeVisited));
+	}
+}
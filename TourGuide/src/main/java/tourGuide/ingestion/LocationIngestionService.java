@@ -0,0 +1,190 @@
+package tourGuide.ingestion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import tourGuide.helper.NamedThreadFactory;
+import tourGuide.service.TourGuideService;
+import tourGuide.user.User;
+
+/**
+ * Records the location fixes pushed by clients, as an alternative to polling the location provider.
+ *
+ * Batches of fixes are queued whole or not at all, in a queue bounded to capacity fixes, and a single
+ * drainer thread records them in micro-batches of at most batchSize fixes: each fix is added to its
+ * user's history, then the rewards of the users of the micro-batch are calculated on the rewards pool.
+ * Fixes are recorded oldest first, and a fix older than its user's latest location is skipped, so
+ * histories stay in time order whatever the order clients push fixes in.
+ * A fix holds its room in the queue until its rewards are calculated, so slow reward lookups push
+ * back on the clients once the queue is full.
+ */
+public class LocationIngestionService {
+	public static final int DEFAULT_CAPACITY = 100_000;
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 30000;
+	private static final long POLL_MILLIS = 100;
+	private Logger logger = LoggerFactory.getLogger(LocationIngestionService.class);
+	private final TourGuideService tourGuideService;
+	private final int capacity;
+	private final int batchSize;
+	private final Semaphore room;
+	private final BlockingQueue<VisitedLocation> queue = new LinkedBlockingQueue<>();
+	private final ExecutorService drainer = Executors.newSingleThreadExecutor(new NamedThreadFactory("location-ingestion"));
+	private final Counter acceptedFixes = Counter.builder("tourguide.ingestion.fixes")
+			.tag("outcome", "accepted")
+			.description("Location fixes pushed by clients")
+			.register(Metrics.globalRegistry);
+	private final Counter rejectedFixes = Counter.builder("tourguide.ingestion.fixes")
+			.tag("outcome", "rejected")
+			.description("Location fixes pushed by clients")
+			.register(Metrics.globalRegistry);
+	private final Counter unknownUserFixes = Counter.builder("tourguide.ingestion.fixes")
+			.tag("outcome", "unknown_user")
+			.description("Location fixes pushed by clients")
+			.register(Metrics.globalRegistry);
+	private final Counter staleFixes = Counter.builder("tourguide.ingestion.fixes")
+			.tag("outcome", "stale")
+			.description("Location fixes pushed by clients")
+			.register(Metrics.globalRegistry);
+	private final Timer batchTimer = Timer.builder("tourguide.ingestion.batch")
+			.description("Time to record a micro-batch of pushed fixes, rewards included")
+			.register(Metrics.globalRegistry);
+	private volatile boolean stop = false;
+
+	public LocationIngestionService(TourGuideService tourGuideService) {
+		this(tourGuideService, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+	}
+
+	public LocationIngestionService(TourGuideService tourGuideService, int capacity, int batchSize) {
+		if(capacity < 1 || batchSize < 1) {
+			throw new IllegalArgumentException("Invalid ingestion queue: capacity " + capacity + ", batch size " + batchSize);
+		}
+		this.tourGuideService = tourGuideService;
+		this.capacity = capacity;
+		this.batchSize = batchSize;
+		this.room = new Semaphore(capacity);
+		Gauge.builder("tourguide.ingestion.queued", this, LocationIngestionService::getQueuedCount)
+				.description("Pushed fixes queued or being recorded")
+				.register(Metrics.globalRegistry);
+		drainer.submit(this::drain);
+	}
+
+	/**
+	 * Queues every fix of the batch, or none of them if the queue does not have room for all of them.
+	 * @return false if the queue is full or shutting down
+	 * @throws IllegalArgumentException if the batch is larger than the whole queue
+	 */
+	public boolean offer(List<VisitedLocation> fixes) {
+		if(fixes.size() > capacity) {
+			throw new IllegalArgumentException("Batch of " + fixes.size() + " fixes exceeds the queue capacity of " + capacity);
+		}
+		if(stop || !room.tryAcquire(fixes.size())) {
+			rejectedFixes.increment(fixes.size());
+			return false;
+		}
+		queue.addAll(fixes);
+		acceptedFixes.increment(fixes.size());
+		return true;
+	}
+
+	/**
+	 * @return the fixes queued or being recorded
+	 */
+	public int getQueuedCount() {
+		return capacity - room.availablePermits();
+	}
+
+	public void shutdown() {
+		shutdown(DEFAULT_SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops accepting fixes and waits for the queued ones to be recorded.
+	 * @return false if fixes were still queued after the timeout
+	 */
+	public boolean shutdown(long timeout, TimeUnit unit) {
+		stop = true;
+		drainer.shutdown();
+		try {
+			if(drainer.awaitTermination(timeout, unit)) {
+				return true;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		logger.warn("Dropping " + getQueuedCount() + " pushed fixes not recorded within " + unit.toMillis(timeout) + " ms");
+		drainer.shutdownNow();
+		return false;
+	}
+
+	private void drain() {
+		List<VisitedLocation> batch = new ArrayList<>(batchSize);
+		while(!stop || !queue.isEmpty()) {
+			try {
+				VisitedLocation first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if(first == null) {
+					continue;
+				}
+				batch.add(first);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			queue.drainTo(batch, batchSize - 1);
+			try {
+				batchTimer.record(() -> record(batch));
+			} catch (RuntimeException e) {
+				logger.error("Unable to record " + batch.size() + " pushed fixes", e);
+			} finally {
+				room.release(batch.size());
+				batch.clear();
+			}
+		}
+	}
+
+	private void record(List<VisitedLocation> batch) {
+		Set<User> users = Collections.newSetFromMap(new IdentityHashMap<>());
+		batch.sort(Comparator.comparing((VisitedLocation fix) -> fix.timeVisited));
+		for(VisitedLocation fix : batch) {
+			User user = tourGuideService.getUserRepository().findByUserId(fix.userId);
+			if(user == null) {
+				unknownUserFixes.increment();
+				continue;
+			}
+			Date latestLocationTimestamp = user.getLatestLocationTimestamp();
+			if(latestLocationTimestamp != null && fix.timeVisited.before(latestLocationTimestamp)) {
+				staleFixes.increment();
+				continue;
+			}
+			tourGuideService.recordUserLocation(user, fix);
+			users.add(user);
+		}
+		CompletableFuture.allOf(users.stream()
+				.map(user -> tourGuideService.getRewardsService().calculateRewardsAsync(user).exceptionally(e -> {
+					logger.error("Unable to calculate rewards for user " + user.getUserName(), e);
+					return null;
+				}))
+				.toArray(CompletableFuture[]::new))
+			.join();
+	}
+}
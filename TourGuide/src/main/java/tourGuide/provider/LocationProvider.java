@@ -0,0 +1,17 @@
+package tourGuide.provider;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Source of user locations and attractions.
+ */
+public interface LocationProvider {
+
+	VisitedLocation getUserLocation(UUID userId);
+
+	List<Attraction> getAttractions();
+}
@@ -0,0 +1,31 @@
+package tourGuide.provider;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Records the calls made to a location provider.
+ */
+public class MeteredLocationProvider implements LocationProvider {
+	private final LocationProvider locationProvider;
+	private final ProviderCallMetrics metrics;
+
+	public MeteredLocationProvider(LocationProvider locationProvider, MeterRegistry registry) {
+		this.locationProvider = locationProvider;
+		this.metrics = new ProviderCallMetrics("location", registry);
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		return metrics.record("getUserLocation", () -> locationProvider.getUserLocation(userId));
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		return metrics.record("getAttractions", locationProvider::getAttractions);
+	}
+}
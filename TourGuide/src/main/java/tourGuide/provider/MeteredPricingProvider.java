@@ -0,0 +1,25 @@
+package tourGuide.provider;
+
+import java.util.List;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import tripPricer.Provider;
+
+/**
+ * Records the calls made to a pricing provider.
+ */
+public class MeteredPricingProvider implements PricingProvider {
+	private final PricingProvider pricingProvider;
+	private final ProviderCallMetrics metrics;
+
+	public MeteredPricingProvider(PricingProvider pricingProvider, MeterRegistry registry) {
+		this.pricingProvider = pricingProvider;
+		this.metrics = new ProviderCallMetrics("pricing", registry);
+	}
+
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+		return metrics.record("getPrice", () -> pricingProvider.getPrice(apiKey, attractionId, adults, children, nightsStay, rewardsPoints));
+	}
+}
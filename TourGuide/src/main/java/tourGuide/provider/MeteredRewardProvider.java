@@ -0,0 +1,23 @@
+package tourGuide.provider;
+
+import java.util.UUID;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Records the calls made to a reward provider.
+ */
+public class MeteredRewardProvider implements RewardProvider {
+	private final RewardProvider rewardProvider;
+	private final ProviderCallMetrics metrics;
+
+	public MeteredRewardProvider(RewardProvider rewardProvider, MeterRegistry registry) {
+		this.rewardProvider = rewardProvider;
+		this.metrics = new ProviderCallMetrics("rewards", registry);
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return metrics.record("getAttractionRewardPoints", () -> rewardProvider.getAttractionRewardPoints(attractionId, userId));
+	}
+}
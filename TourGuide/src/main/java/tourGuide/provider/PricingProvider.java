@@ -0,0 +1,15 @@
+package tourGuide.provider;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+
+/**
+ * Source of trip quotes.
+ */
+@FunctionalInterface
+public interface PricingProvider {
+
+	List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints);
+}
@@ -0,0 +1,53 @@
+package tourGuide.provider;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times the calls made to one provider, by operation and outcome, and counts those in flight.
+ */
+public class ProviderCallMetrics {
+	private final String provider;
+	private final MeterRegistry registry;
+	private final AtomicInteger active = new AtomicInteger();
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+	public ProviderCallMetrics(String provider, MeterRegistry registry) {
+		this.provider = provider;
+		this.registry = registry;
+		Gauge.builder("tourguide.provider.calls.active", active, AtomicInteger::get)
+				.tag("provider", provider)
+				.description("Provider calls in flight")
+				.register(registry);
+	}
+
+	public <T> T record(String operation, Supplier<T> call) {
+		active.incrementAndGet();
+		long start = System.nanoTime();
+		String outcome = "failure";
+		try {
+			T result = call.get();
+			outcome = "success";
+			return result;
+		} finally {
+			active.decrementAndGet();
+			getTimer(operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private Timer getTimer(String operation, String outcome) {
+		return timers.computeIfAbsent(operation + ":" + outcome, key -> Timer.builder("tourguide.provider.calls")
+				.tag("provider", provider)
+				.tag("operation", operation)
+				.tag("outcome", outcome)
+				.description("Calls to the location, reward and pricing providers")
+				.register(registry));
+	}
+}
@@ -0,0 +1,21 @@
+package tourGuide.provider;
+
+import java.util.UUID;
+
+import rewardCentral.RewardCentral;
+
+/**
+ * Reward points from RewardCentral.
+ */
+public class RewardCentralRewardProvider implements RewardProvider {
+	private final RewardCentral rewardCentral;
+
+	public RewardCentralRewardProvider(RewardCentral rewardCentral) {
+		this.rewardCentral = rewardCentral;
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return rewardCentral.getAttractionRewardPoints(attractionId, userId);
+	}
+}
@@ -0,0 +1,12 @@
+package tourGuide.provider;
+
+import java.util.UUID;
+
+/**
+ * Source of the reward points an attraction earns a user.
+ */
+@FunctionalInterface
+public interface RewardProvider {
+
+	int getAttractionRewardPoints(UUID attractionId, UUID userId);
+}
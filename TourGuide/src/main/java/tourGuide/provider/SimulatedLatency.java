@@ -0,0 +1,83 @@
+package tourGuide.provider;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and failures of a simulated remote call.
+ *
+ * Each call draws its delay and outcome from a random generator seeded with the seed and
+ * the call's sequence number, so a run replays the same delays and failures in call order.
+ */
+public class SimulatedLatency {
+	public static final SimulatedLatency NONE = new SimulatedLatency(Distribution.NONE, 0, 0, 0, 0);
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	public enum Distribution {
+		/** no delay at all */
+		NONE,
+		/** always minMillis */
+		FIXED,
+		/** evenly spread between minMillis and maxMillis */
+		UNIFORM,
+		/** minMillis plus an exponential tail with a mean of a quarter of the range, cut at maxMillis */
+		EXPONENTIAL
+	}
+
+	private final Distribution distribution;
+	private final long minMillis;
+	private final long maxMillis;
+	private final double errorRate;
+	private final long seed;
+	private final AtomicLong calls = new AtomicLong();
+
+	/**
+	 * @param errorRate share of calls that fail, between 0 and 1
+	 */
+	public SimulatedLatency(Distribution distribution, long minMillis, long maxMillis, double errorRate, long seed) {
+		if(minMillis < 0 || maxMillis < minMillis) {
+			throw new IllegalArgumentException("Invalid latency range " + minMillis + "-" + maxMillis + " ms");
+		}
+		if(errorRate < 0 || errorRate > 1) {
+			throw new IllegalArgumentException("Invalid error rate " + errorRate);
+		}
+		this.distribution = distribution;
+		this.minMillis = minMillis;
+		this.maxMillis = maxMillis;
+		this.errorRate = errorRate;
+		this.seed = seed;
+	}
+
+	/**
+	 * Waits for the delay of one call, then fails it with the configured probability.
+	 * @throws SimulatedProviderException if the call fails
+	 */
+	public void simulateCall(String operation) {
+		SplittableRandom random = new SplittableRandom(seed + calls.getAndIncrement() * GOLDEN_GAMMA);
+		long delay = nextDelayMillis(random);
+		if(delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if(errorRate > 0 && random.nextDouble() < errorRate) {
+			throw new SimulatedProviderException("Simulated failure of " + operation);
+		}
+	}
+
+	private long nextDelayMillis(SplittableRandom random) {
+		switch(distribution) {
+		case FIXED:
+			return minMillis;
+		case UNIFORM:
+			return minMillis + random.nextLong(maxMillis - minMillis + 1);
+		case EXPONENTIAL:
+			double tail = -Math.log(1 - random.nextDouble()) * (maxMillis - minMillis) / 4;
+			return Math.min(maxMillis, minMillis + Math.round(tail));
+		default:
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package tourGuide.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Local stand-in for gpsUtil: seeded attractions and user locations spread over the same
+ * coordinate ranges gpsUtil uses, after a simulated latency.
+ *
+ * The attractions are generated once, so unlike gpsUtil's their ids stay the same between calls.
+ */
+public class SimulatedLocationProvider implements LocationProvider {
+	private final List<Attraction> attractions;
+	private final SimulatedLatency latency;
+	private final long seed;
+	private final AtomicLong locations = new AtomicLong();
+
+	public SimulatedLocationProvider(int attractionCount, SimulatedLatency latency, long seed) {
+		this.latency = latency;
+		this.seed = seed;
+		SplittableRandom random = new SplittableRandom(seed);
+		List<Attraction> attractions = new ArrayList<>(attractionCount);
+		for(int i = 0; i < attractionCount; i++) {
+			Location location = randomLocation(random);
+			attractions.add(new Attraction("Attraction " + i, "City " + i, "State", location.latitude, location.longitude));
+		}
+		this.attractions = Collections.unmodifiableList(attractions);
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		latency.simulateCall("getUserLocation");
+		SplittableRandom random = new SplittableRandom(seed ^ userId.getLeastSignificantBits() ^ locations.incrementAndGet());
+		return new VisitedLocation(userId, randomLocation(random), new Date());
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		latency.simulateCall("getAttractions");
+		return new ArrayList<>(attractions);
+	}
+
+	public static Location randomLocation(SplittableRandom random) {
+		return new Location(random.nextDouble(-85.05112878, 85.05112878), random.nextDouble(-180, 180));
+	}
+}
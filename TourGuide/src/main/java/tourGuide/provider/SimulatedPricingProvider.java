@@ -0,0 +1,43 @@
+package tourGuide.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import tripPricer.Provider;
+
+/**
+ * Local stand-in for TripPricer: five providers priced like TripPricer does, from a random
+ * generator seeded with the seed and the request, after a simulated latency.
+ */
+public class SimulatedPricingProvider implements PricingProvider {
+	private static final String[] PROVIDER_NAMES = { "Holiday Travels", "Enterprize Ventures Limited", "Sunny Days",
+			"FlyAway Trips", "United Partners Vacations", "Dream Trips", "Live Free", "AdventureCo", "Cure-Your-Blues" };
+	private static final int PROVIDER_COUNT = 5;
+	private final SimulatedLatency latency;
+	private final long seed;
+
+	public SimulatedPricingProvider(SimulatedLatency latency, long seed) {
+		this.latency = latency;
+		this.seed = seed;
+	}
+
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+		latency.simulateCall("getPrice");
+		long requestSeed = seed ^ attractionId.getMostSignificantBits() ^ attractionId.getLeastSignificantBits();
+		requestSeed = requestSeed * 31 + adults;
+		requestSeed = requestSeed * 31 + children;
+		requestSeed = requestSeed * 31 + nightsStay;
+		SplittableRandom random = new SplittableRandom(requestSeed * 31 + rewardsPoints);
+		List<Provider> providers = new ArrayList<>(PROVIDER_COUNT);
+		for(int i = 0; i < PROVIDER_COUNT; i++) {
+			int multiple = random.nextInt(100, 700);
+			double price = (multiple * adults + multiple * children / 3.0) * nightsStay + 0.99 - rewardsPoints;
+			String name = PROVIDER_NAMES[random.nextInt(PROVIDER_NAMES.length)];
+			providers.add(new Provider(attractionId, name, Math.max(0, price)));
+		}
+		return providers;
+	}
+}
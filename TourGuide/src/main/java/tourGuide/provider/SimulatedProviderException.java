@@ -0,0 +1,12 @@
+package tourGuide.provider;
+
+/**
+ * Thrown by simulated providers for the share of calls their error rate makes fail.
+ */
+public class SimulatedProviderException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public SimulatedProviderException(String message) {
+		super(message);
+	}
+}
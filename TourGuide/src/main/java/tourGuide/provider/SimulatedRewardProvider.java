@@ -0,0 +1,25 @@
+package tourGuide.provider;
+
+import java.util.UUID;
+
+/**
+ * Local stand-in for RewardCentral: 1 to 1000 points derived from the seed and both ids,
+ * so the same user always earns the same points for an attraction.
+ */
+public class SimulatedRewardProvider implements RewardProvider {
+	private final SimulatedLatency latency;
+	private final long seed;
+
+	public SimulatedRewardProvider(SimulatedLatency latency, long seed) {
+		this.latency = latency;
+		this.seed = seed;
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		latency.simulateCall("getAttractionRewardPoints");
+		long hash = seed * 31 + attractionId.hashCode();
+		hash = hash * 31 + userId.hashCode();
+		return 1 + (int) Math.floorMod(hash ^ (hash >>> 32), 1000L);
+	}
+}
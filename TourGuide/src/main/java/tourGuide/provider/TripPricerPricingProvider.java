@@ -0,0 +1,27 @@
+package tourGuide.provider;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+
+/**
+ * Trip quotes from TripPricer.
+ */
+public class TripPricerPricingProvider implements PricingProvider {
+	private final TripPricer tripPricer;
+
+	public TripPricerPricingProvider() {
+		this(new TripPricer());
+	}
+
+	public TripPricerPricingProvider(TripPricer tripPricer) {
+		this.tripPricer = tripPricer;
+	}
+
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+		return tripPricer.getPrice(apiKey, attractionId, adults, children, nightsStay, rewardsPoints);
+	}
+}
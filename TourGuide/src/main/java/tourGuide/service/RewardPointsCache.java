@@ -0,0 +1,126 @@
+package tourGuide.service;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import tourGuide.provider.RewardProvider;
+
+/**
+ * Memoizes the reward provider's points per (attraction, user).
+ *
+ * The cache holds the pending lookup itself, so concurrent requests for the same key share
+ * a single provider call. Failed lookups are evicted right away to be retried.
+ */
+public class RewardPointsCache implements MeterBinder {
+	public static final long DEFAULT_MAXIMUM_SIZE = 500_000;
+	public static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.HOURS.toMillis(1);
+	private final RewardProvider rewardProvider;
+	private final Cache<Key, CompletableFuture<Integer>> cache;
+
+	public RewardPointsCache(RewardProvider rewardProvider) {
+		this(rewardProvider, DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE_MILLIS);
+	}
+
+	public RewardPointsCache(RewardProvider rewardProvider, long maximumSize, long timeToLiveMillis) {
+		this.rewardProvider = rewardProvider;
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(timeToLiveMillis, TimeUnit.MILLISECONDS)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Looks the reward points up on the caller's thread, unless the same lookup is already
+	 * cached or in flight.
+	 */
+	public int getRewardPoints(UUID attractionId, UUID userId) {
+		try {
+			return getRewardPointsAsync(attractionId, userId, Runnable::run).join();
+		} catch (CompletionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Looks the reward points up on the given executor, unless the same lookup is already
+	 * cached or in flight.
+	 */
+	public CompletableFuture<Integer> getRewardPointsAsync(UUID attractionId, UUID userId, Executor executor) {
+		Key key = new Key(attractionId, userId);
+		CompletableFuture<Integer> cached = cache.getIfPresent(key);
+		if(cached != null) {
+			return cached;
+		}
+		CompletableFuture<Integer> lookup = new CompletableFuture<>();
+		cached = cache.asMap().putIfAbsent(key, lookup);
+		if(cached != null) {
+			return cached;
+		}
+		try {
+			executor.execute(() -> load(key, lookup));
+		} catch (RuntimeException e) {
+			cache.asMap().remove(key, lookup);
+			lookup.completeExceptionally(e);
+		}
+		return lookup;
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, cache, "rewardPoints");
+	}
+
+	private void load(Key key, CompletableFuture<Integer> lookup) {
+		try {
+			lookup.complete(rewardProvider.getAttractionRewardPoints(key.attractionId, key.userId));
+		} catch (RuntimeException e) {
+			cache.asMap().remove(key, lookup);
+			lookup.completeExceptionally(e);
+		}
+	}
+
+	private static final class Key {
+		private final UUID attractionId;
+		private final UUID userId;
+
+		Key(UUID attractionId, UUID userId) {
+			this.attractionId = attractionId;
+			this.userId = userId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(this == o) {
+				return true;
+			}
+			if(!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return attractionId.equals(other.attractionId) && userId.equals(other.userId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(attractionId, userId);
+		}
+	}
+}
@@ -1,79 +1,269 @@
 package tourGuide.service;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import org.springframework.stereotype.Service;
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import rewardCentral.RewardCentral;
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.attraction.AttractionIndex;
+import tourGuide.attraction.GeoPoint;
+import tourGuide.helper.PendingTaskExecutor;
+import tourGuide.helper.WorkerPools;
+import tourGuide.provider.RewardCentralRewardProvider;
+import tourGuide.store.UserEventStore;
 import tourGuide.user.User;
+import tourGuide.user.UserRepository;
 import tourGuide.user.UserReward;
 
-@Service
+/**
+ * Built by TourGuideModule rather than component-scanned, so the application has a single
+ * rewards pool and every reward goes to the configured event store.
+ */
 public class RewardsService {
-    private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+    // RewardCentral blocks for up to a second per lookup, so the pool is sized for waiting threads
+    public static final int DEFAULT_REWARDS_THREAD_COUNT = 100;
 
+	private Logger logger = LoggerFactory.getLogger(RewardsService.class);
 	// proximity in miles
     private int defaultProximityBuffer = 10;
-	private int proximityBuffer = defaultProximityBuffer;
+	private final AtomicInteger proximityBuffer = new AtomicInteger(defaultProximityBuffer);
 	private int attractionProximityRange = 200;
-	private final GpsUtil gpsUtil;
-	private final RewardCentral rewardsCentral;
+	private final AttractionCatalog attractionCatalog;
+	private final RewardPointsCache rewardPointsCache;
+	private final PendingTaskExecutor workers;
+	private volatile UserEventStore userEventStore = UserEventStore.NONE;
+	private volatile UserRepository userRepository;
+	private final Timer rewardsTimer = Timer.builder("tourguide.rewards.calculation")
+			.description("Time to calculate the rewards of one user")
+			.register(Metrics.globalRegistry);
+	private final Timer reevaluationTimer = Timer.builder("tourguide.rewards.reevaluation")
+			.description("Time to reward every user for the attractions a rule change brought within reach")
+			.register(Metrics.globalRegistry);
 	
 	public RewardsService(GpsUtil gpsUtil, RewardCentral rewardCentral) {
-		this.gpsUtil = gpsUtil;
-		this.rewardsCentral = rewardCentral;
+		this(new AttractionCatalog(gpsUtil), new RewardPointsCache(new RewardCentralRewardProvider(rewardCentral)));
+	}
+	
+	public RewardsService(AttractionCatalog attractionCatalog, RewardPointsCache rewardPointsCache) {
+		this(attractionCatalog, rewardPointsCache, DEFAULT_REWARDS_THREAD_COUNT);
+	}
+	
+	public RewardsService(AttractionCatalog attractionCatalog, RewardPointsCache rewardPointsCache, int threadCount) {
+		this(attractionCatalog, rewardPointsCache, threadCount, WorkerPools.Mode.PLATFORM);
+	}
+	
+	public RewardsService(AttractionCatalog attractionCatalog, RewardPointsCache rewardPointsCache, int threadCount, WorkerPools.Mode executionMode) {
+		this.attractionCatalog = attractionCatalog;
+		this.rewardPointsCache = rewardPointsCache;
+		this.workers = new PendingTaskExecutor(WorkerPools.monitor(WorkerPools.newWorkerPool("rewards-worker", threadCount, executionMode), "rewards"));
+		attractionCatalog.addRefreshListener(this::attractionsRefreshed);
+	}
+	
+	/**
+	 * Publishes the new buffer, then re-evaluates the retained locations of every user if it widened.
+	 * @return the re-evaluation, completing with the number of rewards it added
+	 */
+	public CompletableFuture<Integer> setProximityBuffer(int proximityBuffer) {
+		int previous = this.proximityBuffer.getAndSet(proximityBuffer);
+		if(proximityBuffer <= previous) {
+			return CompletableFuture.completedFuture(0);
+		}
+		return reevaluateRewards(getAttractionIndex(), "proximity buffer widened from " + previous + " to " + proximityBuffer + " miles");
+	}
+	
+	public CompletableFuture<Integer> setDefaultProximityBuffer() {
+		return setProximityBuffer(defaultProximityBuffer);
 	}
 	
-	public void setProximityBuffer(int proximityBuffer) {
-		this.proximityBuffer = proximityBuffer;
+	public int getProximityBuffer() {
+		return proximityBuffer.get();
 	}
 	
-	public void setDefaultProximityBuffer() {
-		proximityBuffer = defaultProximityBuffer;
+	/**
+	 * Users of the repository are re-evaluated when the proximity buffer or the attraction catalog changes.
+	 */
+	public void setUserRepository(UserRepository userRepository) {
+		this.userRepository = userRepository;
 	}
 	
+	/**
+	 * Rewards added from now on are recorded to the store, without waiting for them to be durable.
+	 */
+	public void setUserEventStore(UserEventStore userEventStore) {
+		this.userEventStore = userEventStore;
+	}
+	
+	/**
+	 * Calculates the rewards of the user on the caller's thread.
+	 * Only the locations visited since the previous calculation are evaluated, against the
+	 * attractions the user was not rewarded for yet.
+	 * Calculations for the same user are serialized so an attraction is never rewarded twice.
+	 */
 	public void calculateRewards(User user) {
-		List<VisitedLocation> userLocations = user.getVisitedLocations();
-		List<Attraction> attractions = gpsUtil.getAttractions();
-		
-		for(VisitedLocation visitedLocation : userLocations) {
-			for(Attraction attraction : attractions) {
-				if(user.getUserRewards().stream().filter(r -> r.attraction.attractionName.equals(attraction.attractionName)).count() == 0) {
-					if(nearAttraction(visitedLocation, attraction)) {
-						user.addUserReward(new UserReward(visitedLocation, attraction, getRewardPoints(attraction, user)));
+		rewardsTimer.record(() -> calculatePendingRewards(user));
+	}
+	
+	private void calculatePendingRewards(User user) {
+		user.getRewardsLock().lock();
+		try {
+			List<VisitedLocation> userLocations = user.getLocationsPendingRewards();
+			if(userLocations.isEmpty()) {
+				return;
+			}
+			AttractionIndex attractions = getAttractionIndex();
+			// read once, so the whole calculation uses one buffer; a change published meanwhile re-evaluates the user afterwards
+			int buffer = proximityBuffer.get();
+			
+			for(VisitedLocation visitedLocation : userLocations) {
+				if(user.getUserRewards().size() >= attractions.size()) {
+					break;
+				}
+				for(Attraction attraction : attractions.findWithin(GeoPoint.of(visitedLocation.location), buffer)) {
+					addUserReward(user, visitedLocation, attraction);
+				}
+			}
+			user.markLocationsRewarded(userLocations.size());
+		} finally {
+			user.getRewardsLock().unlock();
+		}
+	}
+	
+	private boolean addUserReward(User user, VisitedLocation visitedLocation, Attraction attraction) {
+		if(user.isRewardedFor(attraction)) {
+			return false;
+		}
+		UserReward userReward = new UserReward(visitedLocation, attraction, getRewardPoints(attraction, user));
+		if(!user.addUserReward(userReward)) {
+			return false;
+		}
+		userEventStore.recordReward(user.getUserId(), userReward);
+		return true;
+	}
+	
+	/**
+	 * Re-evaluates the users against the attractions that are new or moved in the refreshed catalog.
+	 */
+	private void attractionsRefreshed(AttractionIndex previous, AttractionIndex current) {
+		Set<String> previousAttractions = previous.getAttractions().stream()
+				.map(RewardsService::catalogKey)
+				.collect(Collectors.toCollection(HashSet::new));
+		List<Attraction> changed = current.getAttractions().stream()
+				.filter(attraction -> !previousAttractions.contains(catalogKey(attraction)))
+				.collect(Collectors.toList());
+		if(!changed.isEmpty()) {
+			reevaluateRewards(new AttractionIndex(changed), changed.size() + " attractions added or moved");
+		}
+	}
+	
+	private static String catalogKey(Attraction attraction) {
+		return attraction.attractionName + "@" + attraction.latitude + "," + attraction.longitude;
+	}
+	
+	/**
+	 * Rewards every user of the repository, in parallel on the rewards executor, for the candidate
+	 * attractions within the proximity buffer of their retained locations they were not rewarded for yet.
+	 * @return the number of rewards added
+	 */
+	private CompletableFuture<Integer> reevaluateRewards(AttractionIndex candidates, String reason) {
+		UserRepository users = userRepository;
+		if(users == null || candidates.size() == 0) {
+			return CompletableFuture.completedFuture(0);
+		}
+		Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+		List<CompletableFuture<Integer>> reevaluations = users.getAll().stream()
+				.map(user -> workers.supplyAsync(() -> reevaluateRewards(user, candidates)))
+				.collect(Collectors.toList());
+		return CompletableFuture.allOf(reevaluations.toArray(new CompletableFuture<?>[0]))
+				.thenApply(v -> {
+					int added = reevaluations.stream().mapToInt(CompletableFuture::join).sum();
+					sample.stop(reevaluationTimer);
+					logger.info("Re-evaluated rewards after " + reason + ": " + added + " rewards added");
+					return added;
+				});
+	}
+	
+	private int reevaluateRewards(User user, AttractionIndex candidates) {
+		user.getRewardsLock().lock();
+		try {
+			int buffer = proximityBuffer.get();
+			int added = 0;
+			for(VisitedLocation visitedLocation : user.getVisitedLocations()) {
+				for(Attraction attraction : candidates.findWithin(GeoPoint.of(visitedLocation.location), buffer)) {
+					if(addUserReward(user, visitedLocation, attraction)) {
+						added++;
 					}
 				}
 			}
+			return added;
+		} finally {
+			user.getRewardsLock().unlock();
 		}
 	}
 	
+	/**
+	 * Calculates the rewards of the user on the rewards executor.
+	 * @return a future failed if the executor rejects the calculation or is shut down before running it
+	 */
+	public CompletableFuture<Void> calculateRewardsAsync(User user) {
+		return workers.runAsync(() -> calculateRewards(user));
+	}
+	
+	/**
+	 * Calculates the rewards of every user on the rewards executor and waits for all of them.
+	 */
+	public void calculateRewards(Collection<User> users) {
+		CompletableFuture.allOf(users.stream()
+				.map(this::calculateRewardsAsync)
+				.toArray(CompletableFuture[]::new))
+			.join();
+	}
+	
+	public void shutdown() {
+		workers.shutdownNow();
+	}
+	
 	public boolean isWithinAttractionProximity(Attraction attraction, Location location) {
-		return getDistance(attraction, location) > attractionProximityRange ? false : true;
+		return getAttractionIndex().getGeoPoint(attraction).isWithin(GeoPoint.of(location), attractionProximityRange);
 	}
 	
-	private boolean nearAttraction(VisitedLocation visitedLocation, Attraction attraction) {
-		return getDistance(attraction, visitedLocation.location) > proximityBuffer ? false : true;
+	/**
+	 * @return the current snapshot of the attraction catalog
+	 */
+	public AttractionIndex getAttractionIndex() {
+		return attractionCatalog.getSnapshot();
+	}
+	
+	public AttractionCatalog getAttractionCatalog() {
+		return attractionCatalog;
+	}
+	
+	/**
+	 * Looks the reward points of the attraction for the user up on the rewards executor.
+	 */
+	public CompletableFuture<Integer> getRewardPointsAsync(Attraction attraction, User user) {
+		return rewardPointsCache.getRewardPointsAsync(attraction.attractionId, user.getUserId(), workers.getExecutorService());
 	}
 	
 	private int getRewardPoints(Attraction attraction, User user) {
-		return rewardsCentral.getAttractionRewardPoints(attraction.attractionId, user.getUserId());
+		return rewardPointsCache.getRewardPoints(attraction.attractionId, user.getUserId());
 	}
 	
 	public double getDistance(Location loc1, Location loc2) {
-        double lat1 = Math.toRadians(loc1.latitude);
-        double lon1 = Math.toRadians(loc1.longitude);
-        double lat2 = Math.toRadians(loc2.latitude);
-        double lon2 = Math.toRadians(loc2.longitude);
-
-        double angle = Math.acos(Math.sin(lat1) * Math.sin(lat2)
-                               + Math.cos(lat1) * Math.cos(lat2) * Math.cos(lon1 - lon2));
-
-        double nauticalMiles = 60 * Math.toDegrees(angle);
-        double statuteMiles = STATUTE_MILES_PER_NAUTICAL_MILE * nauticalMiles;
-        return statuteMiles;
+		return GeoPoint.of(loc1).distanceTo(GeoPoint.of(loc2));
 	}
 
 }
@@ -1,52 +1,106 @@
 package tourGuide.service;
 
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Service;
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
-import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import tourGuide.attraction.AttractionIndex;
+import tourGuide.attraction.GeoPoint;
+import tourGuide.dto.NearbyAttraction;
 import tourGuide.helper.InternalTestHelper;
-import tourGuide.tracker.Tracker;
+import tourGuide.helper.InternalUserGenerator;
+import tourGuide.helper.NamedThreadFactory;
+import tourGuide.helper.WorkerPools;
+import tourGuide.provider.GpsUtilLocationProvider;
+import tourGuide.provider.LocationProvider;
+import tourGuide.provider.TripPricerPricingProvider;
+import tourGuide.store.UserEventStore;
+import tourGuide.tracker.TrackingBatchResult;
+import tourGuide.tracker.TrackingEngine;
 import tourGuide.user.User;
+import tourGuide.user.UserRepository;
 import tourGuide.user.UserReward;
 import tripPricer.Provider;
-import tripPricer.TripPricer;
 
-@Service
+/**
+ * Built by TourGuideModule, which hands it the configured collaborators and execution mode.
+ */
 public class TourGuideService {
+	public static final int NEARBY_ATTRACTION_COUNT = 5;
 	private Logger logger = LoggerFactory.getLogger(TourGuideService.class);
-	private final GpsUtil gpsUtil;
+	private final LocationProvider locationProvider;
 	private final RewardsService rewardsService;
-	private final TripPricer tripPricer = new TripPricer();
-	public final Tracker tracker;
+	private final UserRepository userRepository;
+	private final TripPricingService tripPricingService;
+	private final UserEventStore userEventStore;
+	private final Timer trackingTimer = Timer.builder("tourguide.tracking.user")
+			.description("Time to locate a user and record the location, rewards are calculated afterwards")
+			.register(Metrics.globalRegistry);
+	private final TrackingEngine trackingEngine;
+	private final InternalUserGenerator internalUserGenerator;
+	private final InternalTestHelper.Loading internalUserLoading;
+	private final CompletableFuture<Void> internalUsersLoaded;
 	boolean testMode = true;
 	
 	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService) {
-		this.gpsUtil = gpsUtil;
+		this(new GpsUtilLocationProvider(gpsUtil), rewardsService, new UserRepository(), new TripPricingService(new TripPricerPricingProvider()));
+	}
+	
+	public TourGuideService(LocationProvider locationProvider, RewardsService rewardsService, UserRepository userRepository, TripPricingService tripPricingService) {
+		this(locationProvider, rewardsService, userRepository, tripPricingService, UserEventStore.NONE);
+	}
+	
+	public TourGuideService(LocationProvider locationProvider, RewardsService rewardsService, UserRepository userRepository, TripPricingService tripPricingService,
+			UserEventStore userEventStore) {
+		this(locationProvider, rewardsService, userRepository, tripPricingService, userEventStore, WorkerPools.Mode.PLATFORM);
+	}
+	
+	public TourGuideService(LocationProvider locationProvider, RewardsService rewardsService, UserRepository userRepository, TripPricingService tripPricingService,
+			UserEventStore userEventStore, WorkerPools.Mode executionMode) {
+		this(locationProvider, rewardsService, userRepository, tripPricingService, userEventStore, executionMode,
+				new InternalUserGenerator(), InternalTestHelper.Loading.EAGER);
+	}
+	
+	/**
+	 * Users are restored from the event store, tracked locations are recorded to it.
+	 * The rewards service re-evaluates the users of the repository when its rules change.
+	 * @param executionMode the mode of the tracking workers, see {@link WorkerPools}
+	 * @param internalUserGenerator generates the internal users of test mode
+	 * @param internalUserLoading whether internal users are loaded before the constructor returns or in the background
+	 */
+	public TourGuideService(LocationProvider locationProvider, RewardsService rewardsService, UserRepository userRepository, TripPricingService tripPricingService,
+			UserEventStore userEventStore, WorkerPools.Mode executionMode, InternalUserGenerator internalUserGenerator, InternalTestHelper.Loading internalUserLoading) {
+		this.locationProvider = locationProvider;
 		this.rewardsService = rewardsService;
+		this.userRepository = userRepository;
+		this.tripPricingService = tripPricingService;
+		this.userEventStore = userEventStore;
+		this.internalUserGenerator = internalUserGenerator;
+		this.internalUserLoading = internalUserLoading;
+		rewardsService.setUserRepository(userRepository);
 		
+		logger.debug("Restored " + userRepository.getAll().parallelStream().mapToInt(user -> restoreUser(user) ? 1 : 0).sum() + " users from the event store");
 		if(testMode) {
 			logger.info("TestMode enabled");
 			logger.debug("Initializing users");
-			initializeInternalUsers();
-			logger.debug("Finished initializing users");
+			internalUsersLoaded = initializeInternalUsers();
+		} else {
+			internalUsersLoaded = CompletableFuture.completedFuture(null);
 		}
-		tracker = new Tracker(this);
-		addShutDownHook();
+		trackingEngine = new TrackingEngine(this, TrackingEngine.DEFAULT_MAX_IN_FLIGHT, TrackingEngine.DEFAULT_MAX_PENDING_REWARDS, executionMode);
 	}
 	
 	public List<UserReward> getUserRewards(User user) {
@@ -54,58 +108,144 @@ public class TourGuideService {
 	}
 	
 	public VisitedLocation getUserLocation(User user) {
-		VisitedLocation visitedLocation = (user.getVisitedLocations().size() > 0) ?
+		VisitedLocation visitedLocation = (user.getVisitedLocationCount() > 0) ?
 			user.getLastVisitedLocation() :
 			trackUserLocation(user);
 		return visitedLocation;
 	}
 	
 	public User getUser(String userName) {
-		return internalUserMap.get(userName);
+		return userRepository.findByUserName(userName);
 	}
 	
+	/**
+	 * @return a copy of every user, prefer {@link #getUserRepository()} views for large populations
+	 */
 	public List<User> getAllUsers() {
-		return internalUserMap.values().stream().collect(Collectors.toList());
+		return new ArrayList<>(userRepository.getAll());
+	}
+	
+	/**
+	 * @return the users of one shard, users being spread over shardCount shards by user id
+	 */
+	public Stream<User> getUsers(int shard, int shardCount) {
+		return userRepository.streamShard(shard, shardCount);
 	}
 	
 	public void addUser(User user) {
-		if(!internalUserMap.containsKey(user.getUserName())) {
-			internalUserMap.put(user.getUserName(), user);
-		}
+		userRepository.add(user);
+	}
+	
+	public UserRepository getUserRepository() {
+		return userRepository;
+	}
+	
+	/**
+	 * @return a future completed once the internal test users are all added, already completed unless they load in the background
+	 */
+	public CompletableFuture<Void> getInternalUsersLoaded() {
+		return internalUsersLoaded;
+	}
+	
+	/**
+	 * @return the engine behind {@link #trackUserLocations}, shared with the Tracker
+	 */
+	public TrackingEngine getTrackingEngine() {
+		return trackingEngine;
+	}
+	
+	public RewardsService getRewardsService() {
+		return rewardsService;
 	}
 	
 	public List<Provider> getTripDeals(User user) {
-		int cumulatativeRewardPoints = user.getUserRewards().stream().mapToInt(i -> i.getRewardPoints()).sum();
-		List<Provider> providers = tripPricer.getPrice(tripPricerApiKey, user.getUserId(), user.getUserPreferences().getNumberOfAdults(), 
-				user.getUserPreferences().getNumberOfChildren(), user.getUserPreferences().getTripDuration(), cumulatativeRewardPoints);
+		List<Provider> providers = tripPricingService.getDeals(user);
 		user.setTripDeals(providers);
 		return providers;
 	}
 	
 	public VisitedLocation trackUserLocation(User user) {
-		VisitedLocation visitedLocation = gpsUtil.getUserLocation(user.getUserId());
-		user.addToVisitedLocations(visitedLocation);
-		rewardsService.calculateRewards(user);
+		VisitedLocation visitedLocation = locateUser(user);
+		rewardsService.calculateRewardsAsync(user).exceptionally(e -> {
+			logger.error("Unable to calculate rewards for user " + user.getUserName(), e);
+			return null;
+		});
 		return visitedLocation;
 	}
+	
+	/**
+	 * Acquires the current location of the user and records it, timed as tourguide.tracking.user.
+	 * Rewards are left to the caller.
+	 */
+	public VisitedLocation locateUser(User user) {
+		return trackingTimer.record(() -> {
+			VisitedLocation visitedLocation = acquireUserLocation(user);
+			recordUserLocation(user, visitedLocation);
+			return visitedLocation;
+		});
+	}
+
+	/**
+	 * Tracks the users as a batch: locations are acquired, recorded and evaluated for rewards in
+	 * pipeline stages running in parallel, see {@link TrackingEngine#trackUsersAsync}. Returns at once,
+	 * even while the pipeline is full.
+	 * @return a future completed once every user was tracked and evaluated for rewards
+	 */
+	public CompletableFuture<TrackingBatchResult> trackUserLocations(Collection<User> users) {
+		return trackingEngine.trackUsersAsync(users);
+	}
+	
+	/**
+	 * @return the current location of the user from the location provider, nothing is recorded
+	 */
+	public VisitedLocation acquireUserLocation(User user) {
+		return locationProvider.getUserLocation(user.getUserId());
+	}
 
+	/**
+	 * Adds the location to the user's history and records it to the event store, without waiting for it to be durable.
+	 */
+	public void recordUserLocation(User user, VisitedLocation visitedLocation) {
+		user.addToVisitedLocations(visitedLocation);
+		userEventStore.recordLocation(visitedLocation);
+	}
+
+	/**
+	 * @return the closest attractions to the location, no matter how far away they are, nearest first
+	 */
 	public List<Attraction> getNearByAttractions(VisitedLocation visitedLocation) {
-		List<Attraction> nearbyAttractions = new ArrayList<>();
-		for(Attraction attraction : gpsUtil.getAttractions()) {
-			if(rewardsService.isWithinAttractionProximity(attraction, visitedLocation.location)) {
-				nearbyAttractions.add(attraction);
-			}
-		}
+		return rewardsService.getAttractionIndex().findNearest(visitedLocation.location, NEARBY_ATTRACTION_COUNT);
+	}
+	
+	/**
+	 * @return the closest attractions to the user's location, with their distance and the reward
+	 * points they would earn the user. Reward points are looked up in parallel.
+	 */
+	public List<NearbyAttraction> getClosestAttractions(User user) {
+		VisitedLocation visitedLocation = getUserLocation(user);
+		GeoPoint userPoint = GeoPoint.of(visitedLocation.location);
+		AttractionIndex index = rewardsService.getAttractionIndex();
+		List<Attraction> attractions = index.findNearest(userPoint, NEARBY_ATTRACTION_COUNT);
+		List<CompletableFuture<Integer>> rewardPoints = attractions.stream()
+				.map(attraction -> rewardsService.getRewardPointsAsync(attraction, user))
+				.collect(Collectors.toList());
 		
+		List<NearbyAttraction> nearbyAttractions = new ArrayList<>(attractions.size());
+		for(int i = 0; i < attractions.size(); i++) {
+			Attraction attraction = attractions.get(i);
+			nearbyAttractions.add(new NearbyAttraction(attraction.attractionName, attraction.latitude, attraction.longitude,
+					visitedLocation.location.latitude, visitedLocation.location.longitude,
+					index.getGeoPoint(attraction).distanceTo(userPoint), rewardPoints.get(i).join()));
+		}
 		return nearbyAttractions;
 	}
 	
-	private void addShutDownHook() {
-		Runtime.getRuntime().addShutdownHook(new Thread() { 
-		      public void run() {
-		        tracker.stopTracking();
-		      } 
-		    }); 
+	/**
+	 * Shuts down the workers of {@link #trackUserLocations}, the tracker being a component of its own.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		trackingEngine.shutdown();
 	}
 	
 	/**********************************************************************************
@@ -113,43 +253,34 @@ public class TourGuideService {
 	 * Methods Below: For Internal Testing
 	 * 
 	 **********************************************************************************/
-	private static final String tripPricerApiKey = "test-server-api-key";
 	// Database connection will be used for external users, but for testing purposes internal users are provided and stored in memory
-	private final Map<String, User> internalUserMap = new HashMap<>();
-	private void initializeInternalUsers() {
-		IntStream.range(0, InternalTestHelper.getInternalUserNumber()).forEach(i -> {
-			String userName = "internalUser" + i;
-			String phone = "000";
-			String email = userName + "@tourGuide.com";
-			User user = new User(UUID.randomUUID(), userName, phone, email);
-			generateUserLocationHistory(user);
-			
-			internalUserMap.put(userName, user);
-		});
-		logger.debug("Created " + InternalTestHelper.getInternalUserNumber() + " internal test users.");
-	}
-	
-	private void generateUserLocationHistory(User user) {
-		IntStream.range(0, 3).forEach(i-> {
-			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(generateRandomLatitude(), generateRandomLongitude()), getRandomTime()));
-		});
-	}
-	
-	private double generateRandomLongitude() {
-		double leftLimit = -180;
-	    double rightLimit = 180;
-	    return leftLimit + new Random().nextDouble() * (rightLimit - leftLimit);
-	}
-	
-	private double generateRandomLatitude() {
-		double leftLimit = -85.05112878;
-	    double rightLimit = 85.05112878;
-	    return leftLimit + new Random().nextDouble() * (rightLimit - leftLimit);
+	private boolean restoreUser(User user) {
+		try {
+			return userEventStore.restore(user);
+		} catch (RuntimeException e) {
+			logger.error("Unable to restore user " + user.getUserName() + " from the event store", e);
+			return false;
+		}
 	}
 	
-	private Date getRandomTime() {
-		LocalDateTime localDateTime = LocalDateTime.now().minusDays(new Random().nextInt(30));
-	    return Date.from(localDateTime.toInstant(ZoneOffset.UTC));
+	private CompletableFuture<Void> initializeInternalUsers() {
+		int count = InternalTestHelper.getInternalUserNumber();
+		Runnable load = () -> {
+			// restored before being added, as users can be tracked as soon as they are in the repository
+			AtomicInteger restored = new AtomicInteger();
+			internalUserGenerator.generate(count).forEach(user -> {
+				if(restoreUser(user)) {
+					restored.incrementAndGet();
+				}
+				userRepository.add(user);
+			});
+			logger.debug("Created " + count + " internal test users, restored " + restored + " from the event store.");
+		};
+		if(internalUserLoading == InternalTestHelper.Loading.BACKGROUND) {
+			return CompletableFuture.runAsync(load, runnable -> new NamedThreadFactory("internal-users").newThread(runnable).start());
+		}
+		load.run();
+		return CompletableFuture.completedFuture(null);
 	}
 	
 }
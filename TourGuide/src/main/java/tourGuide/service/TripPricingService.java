@@ -0,0 +1,181 @@
+package tourGuide.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import tourGuide.helper.WorkerPools;
+import tourGuide.user.User;
+import tourGuide.user.UserPreferences;
+import tourGuide.provider.PricingProvider;
+import tripPricer.Provider;
+
+/**
+ * Quotes trips with the pricing provider on a dedicated executor, with a timeout.
+ *
+ * Quotes are cached for a short time per user, party, trip duration and bucket of reward
+ * points, so repeated requests are served from memory until the user earns enough points
+ * to change bucket. Deals are the quotes filtered on the user's price range, which assumes
+ * provider prices are in the currency of the user's preferences.
+ */
+public class TripPricingService {
+	public static final String DEFAULT_API_KEY = "test-server-api-key";
+	public static final int DEFAULT_THREAD_COUNT = 20;
+	public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+	public static final long DEFAULT_QUOTE_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	public static final int REWARD_POINTS_BUCKET_SIZE = 100;
+	private static final long MAXIMUM_CACHED_QUOTES = 100_000;
+	private final PricingProvider pricingProvider;
+	private final String apiKey;
+	private final long timeoutMillis;
+	private final ExecutorService executorService;
+	private final Cache<QuoteKey, List<Provider>> quotes;
+
+	public TripPricingService(PricingProvider pricingProvider) {
+		this(pricingProvider, DEFAULT_API_KEY, DEFAULT_THREAD_COUNT, DEFAULT_TIMEOUT_MILLIS, DEFAULT_QUOTE_TIME_TO_LIVE_MILLIS);
+	}
+
+	public TripPricingService(PricingProvider pricingProvider, String apiKey, int threadCount, long timeoutMillis, long quoteTimeToLiveMillis) {
+		this(pricingProvider, apiKey, threadCount, timeoutMillis, quoteTimeToLiveMillis, WorkerPools.Mode.PLATFORM);
+	}
+
+	public TripPricingService(PricingProvider pricingProvider, String apiKey, int threadCount, long timeoutMillis, long quoteTimeToLiveMillis,
+			WorkerPools.Mode executionMode) {
+		this.pricingProvider = pricingProvider;
+		this.apiKey = apiKey;
+		this.timeoutMillis = timeoutMillis;
+		this.executorService = WorkerPools.monitor(WorkerPools.newWorkerPool("trip-pricing-worker", threadCount, executionMode), "trip-pricing");
+		this.quotes = Caffeine.newBuilder()
+				.maximumSize(MAXIMUM_CACHED_QUOTES)
+				.expireAfterWrite(quoteTimeToLiveMillis, TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	/**
+	 * @return the providers' quotes for the trip described by the user's preferences
+	 * @throws TripPricingTimeoutException if the pricing provider does not answer in time
+	 */
+	public List<Provider> getQuotes(User user) {
+		UserPreferences preferences = user.getUserPreferences();
+		int rewardPoints = user.getTotalRewardPoints();
+		QuoteKey key = new QuoteKey(user.getUserId(), preferences.getNumberOfAdults(), preferences.getNumberOfChildren(),
+				preferences.getTripDuration(), rewardPoints / REWARD_POINTS_BUCKET_SIZE);
+		List<Provider> cached = quotes.getIfPresent(key);
+		if(cached != null) {
+			return cached;
+		}
+		List<Provider> providers = Collections.unmodifiableList(fetchQuotes(key, rewardPoints));
+		quotes.put(key, providers);
+		return providers;
+	}
+
+	/**
+	 * @return the quotes within the user's price range, cheapest first
+	 * @throws TripPricingTimeoutException if the pricing provider does not answer in time
+	 */
+	public List<Provider> getDeals(User user) {
+		UserPreferences preferences = user.getUserPreferences();
+		return filterByPriceRange(getQuotes(user), preferences.getLowerPricePointCents(), preferences.getHighPricePointCents());
+	}
+
+	/**
+	 * Keeps the providers whose price is within [lowerCents, highCents], cheapest first.
+	 * Prices are compared in cents so no Money object is created per provider.
+	 */
+	public static List<Provider> filterByPriceRange(List<Provider> providers, long lowerCents, long highCents) {
+		long[] cents = new long[providers.size()];
+		List<Provider> deals = new ArrayList<>(providers.size());
+		for(Provider provider : providers) {
+			long price = toCents(provider.price);
+			if(price >= lowerCents && price <= highCents) {
+				cents[deals.size()] = price;
+				deals.add(provider);
+			}
+		}
+		// insertion sort on the primitive prices, providers only quote a handful of trips
+		for(int i = 1; i < deals.size(); i++) {
+			long price = cents[i];
+			Provider provider = deals.get(i);
+			int j = i - 1;
+			while(j >= 0 && cents[j] > price) {
+				cents[j + 1] = cents[j];
+				deals.set(j + 1, deals.get(j));
+				j--;
+			}
+			cents[j + 1] = price;
+			deals.set(j + 1, provider);
+		}
+		return deals;
+	}
+
+	public void shutdown() {
+		executorService.shutdownNow();
+	}
+
+	private List<Provider> fetchQuotes(QuoteKey key, int rewardPoints) {
+		CompletableFuture<List<Provider>> future = CompletableFuture.supplyAsync(() -> pricingProvider.getPrice(apiKey, key.userId,
+				key.adults, key.children, key.duration, rewardPoints), executorService);
+		try {
+			return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			throw new TripPricingTimeoutException("Pricing provider did not answer within " + timeoutMillis + " ms", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the pricing provider", e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static long toCents(double price) {
+		return Math.round(price * 100);
+	}
+
+	private static final class QuoteKey {
+		private final UUID userId;
+		private final int adults;
+		private final int children;
+		private final int duration;
+		private final int rewardPointsBucket;
+
+		QuoteKey(UUID userId, int adults, int children, int duration, int rewardPointsBucket) {
+			this.userId = userId;
+			this.adults = adults;
+			this.children = children;
+			this.duration = duration;
+			this.rewardPointsBucket = rewardPointsBucket;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(this == o) {
+				return true;
+			}
+			if(!(o instanceof QuoteKey)) {
+				return false;
+			}
+			QuoteKey other = (QuoteKey) o;
+			return userId.equals(other.userId) && adults == other.adults && children == other.children
+					&& duration == other.duration && rewardPointsBucket == other.rewardPointsBucket;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(userId, adults, children, duration, rewardPointsBucket);
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package tourGuide.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the pricing provider does not quote a trip within the configured timeout.
+ */
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class TripPricingTimeoutException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	public TripPricingTimeoutException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,395 @@
+package tourGuide.store;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import tourGuide.helper.NamedThreadFactory;
+import tourGuide.user.LocationRetentionPolicy;
+import tourGuide.user.User;
+import tourGuide.user.UserReward;
+
+/**
+ * {@link UserEventStore} backed by an append-only log of fixed-width binary records.
+ *
+ * The log is split in segment files of segmentRecords records each, preallocated and memory-mapped,
+ * so records are written and read in place without copying whole files on-heap. Each record points
+ * back to the previous record of its user, and only the latest record of every user is indexed in
+ * memory: reading a user's history walks that chain and touches nothing else.
+ *
+ * Appends return once the record is in the mapping. A committer thread forces the mapped segments to
+ * disk every commitIntervalMillis, completing the futures of every append of the group at once.
+ * Records carry a checksum, and recovery stops at the first missing or torn one.
+ */
+public class EventLogStore implements UserEventStore {
+	public static final int RECORD_SIZE = 128;
+	public static final int DEFAULT_SEGMENT_RECORDS = 1 << 18;
+	public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 10;
+	// rewards are matched on the full attraction name, so longer names are rejected rather than cut
+	public static final int MAX_ATTRACTION_NAME_BYTES = 44;
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final byte LOCATION = 1;
+	private static final byte REWARD = 2;
+	private static final long NO_RECORD = -1;
+	private static final long NO_TIME = Long.MIN_VALUE;
+	// record layout, a type of 0 marks the end of the log
+	private static final int TYPE = 0;
+	private static final int NAME_LENGTH = 1;
+	private static final int USER_ID_MOST = 8;
+	private static final int USER_ID_LEAST = 16;
+	private static final int PREVIOUS = 24;
+	private static final int LATITUDE = 32;
+	private static final int LONGITUDE = 40;
+	private static final int TIME = 48;
+	private static final int REWARD_POINTS = 56;
+	private static final int ATTRACTION_LATITUDE = 64;
+	private static final int ATTRACTION_LONGITUDE = 72;
+	private static final int ATTRACTION_NAME = 80;
+	private static final int CHECKSUM = 124;
+	private Logger logger = LoggerFactory.getLogger(EventLogStore.class);
+	private final Path directory;
+	private final int segmentRecords;
+	private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+	private final ConcurrentMap<UUID, Long> lastRecordByUser = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService committer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("event-log-committer"));
+	private final Timer commitTimer = Timer.builder("tourguide.store.commit")
+			.description("Time to force a group of appended records to disk")
+			.register(Metrics.globalRegistry);
+	private final Object appendLock = new Object();
+	// guarded by appendLock
+	private CompletableFuture<Void> pendingCommit = new CompletableFuture<>();
+	private boolean closed;
+	private volatile long appendedCount;
+	private volatile long committedCount;
+
+	public EventLogStore(Path directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_RECORDS, DEFAULT_COMMIT_INTERVAL_MILLIS);
+	}
+
+	public EventLogStore(Path directory, int segmentRecords, long commitIntervalMillis) throws IOException {
+		if(segmentRecords < 1) {
+			throw new IllegalArgumentException("segmentRecords must be at least 1, got " + segmentRecords);
+		}
+		if(commitIntervalMillis < 1) {
+			throw new IllegalArgumentException("commitIntervalMillis must be at least 1, got " + commitIntervalMillis);
+		}
+		this.directory = directory;
+		this.segmentRecords = segmentRecords;
+		Files.createDirectories(directory);
+		recover();
+		committer.scheduleWithFixedDelay(this::commit, commitIntervalMillis, commitIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public CompletableFuture<Void> recordLocation(VisitedLocation visitedLocation) {
+		return append(LOCATION, visitedLocation.userId, visitedLocation, null);
+	}
+
+	/**
+	 * @return a failed future, nothing being recorded, if the attraction name exceeds MAX_ATTRACTION_NAME_BYTES in UTF-8
+	 */
+	@Override
+	public CompletableFuture<Void> recordReward(UUID userId, UserReward userReward) {
+		String attractionName = userReward.attraction.attractionName;
+		if(attractionName.getBytes(StandardCharsets.UTF_8).length > MAX_ATTRACTION_NAME_BYTES) {
+			IllegalArgumentException e = new IllegalArgumentException("Attraction name \"" + attractionName + "\" exceeds "
+					+ MAX_ATTRACTION_NAME_BYTES + " bytes, the reward of user " + userId + " cannot be recorded");
+			logger.error(e.getMessage());
+			return failed(e);
+		}
+		return append(REWARD, userId, userReward.visitedLocation, userReward);
+	}
+
+	@Override
+	public List<VisitedLocation> getVisitedLocations(UUID userId, int limit) {
+		List<VisitedLocation> locations = new ArrayList<>();
+		for(long index = lastRecord(userId); index != NO_RECORD && locations.size() < limit; index = previous(index)) {
+			if(type(index) == LOCATION) {
+				locations.add(readVisitedLocation(index));
+			}
+		}
+		Collections.reverse(locations);
+		return locations;
+	}
+
+	@Override
+	public List<UserReward> getUserRewards(UUID userId) {
+		List<UserReward> rewards = new ArrayList<>();
+		for(long index = lastRecord(userId); index != NO_RECORD; index = previous(index)) {
+			if(type(index) == REWARD) {
+				rewards.add(readUserReward(index));
+			}
+		}
+		Collections.reverse(rewards);
+		return rewards;
+	}
+
+	/**
+	 * Restores at most the default retention policy's maximum count of locations.
+	 * Restored locations are evaluated for rewards again, which the user's recorded rewards make a no-op.
+	 */
+	@Override
+	public boolean restore(User user) {
+		if(!lastRecordByUser.containsKey(user.getUserId())) {
+			return false;
+		}
+		getVisitedLocations(user.getUserId(), LocationRetentionPolicy.getDefaultPolicy().getMaxCount()).forEach(user::addToVisitedLocations);
+		getUserRewards(user.getUserId()).forEach(user::addUserReward);
+		return true;
+	}
+
+	/**
+	 * @return the number of records in the log
+	 */
+	public long size() {
+		return appendedCount;
+	}
+
+	/**
+	 * Stops the committer and forces every appended record to disk. Later appends fail.
+	 */
+	@Override
+	public void close() {
+		synchronized(appendLock) {
+			if(closed) {
+				return;
+			}
+			closed = true;
+		}
+		committer.shutdown();
+		try {
+			committer.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		commit();
+	}
+
+	private CompletableFuture<Void> append(byte type, UUID userId, VisitedLocation visitedLocation, UserReward userReward) {
+		synchronized(appendLock) {
+			if(closed) {
+				return failed(new IllegalStateException("Event log " + directory + " is closed"));
+			}
+			long index = appendedCount;
+			ByteBuffer segment;
+			try {
+				segment = segmentFor(index);
+			} catch (IOException e) {
+				logger.error("Unable to append to event log " + directory, e);
+				return failed(new UncheckedIOException(e));
+			}
+			int offset = offset(index);
+			Long previous = lastRecordByUser.get(userId);
+			segment.putLong(offset + USER_ID_MOST, userId.getMostSignificantBits());
+			segment.putLong(offset + USER_ID_LEAST, userId.getLeastSignificantBits());
+			segment.putLong(offset + PREVIOUS, previous == null ? NO_RECORD : previous);
+			segment.putDouble(offset + LATITUDE, visitedLocation.location.latitude);
+			segment.putDouble(offset + LONGITUDE, visitedLocation.location.longitude);
+			segment.putLong(offset + TIME, visitedLocation.timeVisited == null ? NO_TIME : visitedLocation.timeVisited.getTime());
+			if(userReward != null) {
+				byte[] name = userReward.attraction.attractionName.getBytes(StandardCharsets.UTF_8);
+				segment.putInt(offset + REWARD_POINTS, userReward.getRewardPoints());
+				segment.putDouble(offset + ATTRACTION_LATITUDE, userReward.attraction.latitude);
+				segment.putDouble(offset + ATTRACTION_LONGITUDE, userReward.attraction.longitude);
+				segment.put(offset + NAME_LENGTH, (byte) name.length);
+				for(int i = 0; i < name.length; i++) {
+					segment.put(offset + ATTRACTION_NAME + i, name[i]);
+				}
+			}
+			segment.put(offset + TYPE, type);
+			segment.putInt(offset + CHECKSUM, checksum(segment, offset));
+			lastRecordByUser.put(userId, index);
+			appendedCount = index + 1;
+			return pendingCommit;
+		}
+	}
+
+	/**
+	 * Forces the segments holding records appended since the previous commit, and completes their group.
+	 */
+	private void commit() {
+		CompletableFuture<Void> group;
+		long from;
+		long to;
+		synchronized(appendLock) {
+			from = committedCount;
+			to = appendedCount;
+			if(from == to) {
+				return;
+			}
+			group = pendingCommit;
+			pendingCommit = new CompletableFuture<>();
+		}
+		try {
+			commitTimer.record(() -> {
+				for(long segment = from / segmentRecords; segment <= (to - 1) / segmentRecords; segment++) {
+					segments.get((int) segment).force();
+				}
+			});
+			committedCount = to;
+			group.complete(null);
+		} catch (RuntimeException e) {
+			logger.error("Unable to commit event log " + directory, e);
+			group.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Maps the existing segments and finds the end of the log, the first record missing or failing its checksum.
+	 * Anything written past the end is cleared so it cannot be mistaken for records later.
+	 */
+	private void recover() throws IOException {
+		TreeMap<Long, Path> files = new TreeMap<>();
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+			for(Path file : stream) {
+				String name = file.getFileName().toString();
+				files.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+			}
+		}
+		for(long baseIndex : files.keySet()) {
+			if(baseIndex != (long) segments.size() * segmentRecords) {
+				throw new IOException("Event log " + directory + " is missing the segment starting at record " + (long) segments.size() * segmentRecords);
+			}
+			segments.add(map(files.get(baseIndex)));
+		}
+		long index = 0;
+		long capacity = (long) segments.size() * segmentRecords;
+		while(index < capacity && isValid(index)) {
+			lastRecordByUser.put(new UUID(segments.get(segment(index)).getLong(offset(index) + USER_ID_MOST),
+					segments.get(segment(index)).getLong(offset(index) + USER_ID_LEAST)), index);
+			index++;
+		}
+		for(long stale = index; stale < capacity && type(stale) != 0; stale++) {
+			MappedByteBuffer segment = segments.get(segment(stale));
+			for(int i = 0; i < RECORD_SIZE; i++) {
+				segment.put(offset(stale) + i, (byte) 0);
+			}
+		}
+		while(segments.size() > Math.max(1, segment(index) + 1)) {
+			segments.remove(segments.size() - 1);
+			Files.delete(segmentPath((long) segments.size() * segmentRecords));
+		}
+		for(MappedByteBuffer segment : segments) {
+			segment.force();
+		}
+		appendedCount = index;
+		committedCount = index;
+		logger.debug("Recovered " + index + " records for " + lastRecordByUser.size() + " users from event log " + directory);
+	}
+
+	private ByteBuffer segmentFor(long index) throws IOException {
+		int segment = segment(index);
+		if(segment == segments.size()) {
+			segments.add(map(segmentPath((long) segment * segmentRecords)));
+		}
+		return segments.get(segment);
+	}
+
+	private MappedByteBuffer map(Path file) throws IOException {
+		try(RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			long size = (long) segmentRecords * RECORD_SIZE;
+			if(raf.length() != size) {
+				raf.setLength(size);
+			}
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	private Path segmentPath(long baseIndex) {
+		return directory.resolve(String.format("%020d", baseIndex) + SEGMENT_SUFFIX);
+	}
+
+	private boolean isValid(long index) {
+		ByteBuffer segment = segments.get(segment(index));
+		int offset = offset(index);
+		return segment.get(offset + TYPE) != 0 && segment.getInt(offset + CHECKSUM) == checksum(segment, offset);
+	}
+
+	private long lastRecord(UUID userId) {
+		Long index = lastRecordByUser.get(userId);
+		return index == null ? NO_RECORD : index;
+	}
+
+	private byte type(long index) {
+		return segments.get(segment(index)).get(offset(index) + TYPE);
+	}
+
+	private long previous(long index) {
+		return segments.get(segment(index)).getLong(offset(index) + PREVIOUS);
+	}
+
+	private VisitedLocation readVisitedLocation(long index) {
+		ByteBuffer segment = segments.get(segment(index));
+		int offset = offset(index);
+		long time = segment.getLong(offset + TIME);
+		return new VisitedLocation(new UUID(segment.getLong(offset + USER_ID_MOST), segment.getLong(offset + USER_ID_LEAST)),
+				new Location(segment.getDouble(offset + LATITUDE), segment.getDouble(offset + LONGITUDE)),
+				time == NO_TIME ? null : new Date(time));
+	}
+
+	/**
+	 * The attraction's city and state are not recorded, the restored attraction has empty ones.
+	 */
+	private UserReward readUserReward(long index) {
+		ByteBuffer segment = segments.get(segment(index));
+		int offset = offset(index);
+		byte[] name = new byte[segment.get(offset + NAME_LENGTH)];
+		for(int i = 0; i < name.length; i++) {
+			name[i] = segment.get(offset + ATTRACTION_NAME + i);
+		}
+		Attraction attraction = new Attraction(new String(name, StandardCharsets.UTF_8), "", "",
+				segment.getDouble(offset + ATTRACTION_LATITUDE), segment.getDouble(offset + ATTRACTION_LONGITUDE));
+		return new UserReward(readVisitedLocation(index), attraction, segment.getInt(offset + REWARD_POINTS));
+	}
+
+	private int segment(long index) {
+		return (int) (index / segmentRecords);
+	}
+
+	private int offset(long index) {
+		return (int) (index % segmentRecords) * RECORD_SIZE;
+	}
+
+	private static int checksum(ByteBuffer segment, int offset) {
+		ByteBuffer record = segment.duplicate();
+		record.limit(offset + CHECKSUM).position(offset);
+		CRC32 crc = new CRC32();
+		crc.update(record);
+		return (int) crc.getValue();
+	}
+
+	private static CompletableFuture<Void> failed(Throwable e) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		future.completeExceptionally(e);
+		return future;
+	}
+}
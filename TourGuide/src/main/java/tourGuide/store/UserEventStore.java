@@ -0,0 +1,91 @@
+package tourGuide.store;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import gpsUtil.location.VisitedLocation;
+import tourGuide.user.User;
+import tourGuide.user.UserRepository;
+import tourGuide.user.UserReward;
+
+/**
+ * Durable record of the visited locations and rewards of users, from which their state is restored on startup.
+ */
+public interface UserEventStore extends Closeable {
+
+	/**
+	 * Keeps nothing, for deployments without persistence.
+	 */
+	UserEventStore NONE = new UserEventStore() {
+		private final CompletableFuture<Void> done = CompletableFuture.completedFuture(null);
+
+		@Override
+		public CompletableFuture<Void> recordLocation(VisitedLocation visitedLocation) {
+			return done;
+		}
+
+		@Override
+		public CompletableFuture<Void> recordReward(UUID userId, UserReward userReward) {
+			return done;
+		}
+
+		@Override
+		public List<VisitedLocation> getVisitedLocations(UUID userId, int limit) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<UserReward> getUserRewards(UUID userId) {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public boolean restore(User user) {
+			return false;
+		}
+	};
+
+	/**
+	 * @return a future completed once the location is durable, the caller does not have to wait for it
+	 */
+	CompletableFuture<Void> recordLocation(VisitedLocation visitedLocation);
+
+	/**
+	 * @return a future completed once the reward is durable, the caller does not have to wait for it
+	 */
+	CompletableFuture<Void> recordReward(UUID userId, UserReward userReward);
+
+	/**
+	 * @return at most limit of the most recent locations recorded for the user, oldest first
+	 */
+	List<VisitedLocation> getVisitedLocations(UUID userId, int limit);
+
+	/**
+	 * @return the rewards recorded for the user, oldest first
+	 */
+	List<UserReward> getUserRewards(UUID userId);
+
+	/**
+	 * Adds the recorded locations and rewards to the user. Restore a user before it can be tracked, the
+	 * records appended meanwhile would otherwise be added a second time, after the newer locations.
+	 * @return false if nothing was recorded for the user
+	 */
+	boolean restore(User user);
+
+	/**
+	 * Restores the users of the repository in parallel, users without any record being left untouched.
+	 * @return the number of users restored
+	 */
+	default int restore(UserRepository userRepository) {
+		return (int) userRepository.getAll().parallelStream()
+				.filter(this::restore)
+				.count();
+	}
+
+	@Override
+	default void close() {
+	}
+}
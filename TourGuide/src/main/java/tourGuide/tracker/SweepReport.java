@@ -0,0 +1,44 @@
+package tourGuide.tracker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of one tracking sweep over a batch of users.
+ */
+public class SweepReport {
+	private final int userCount;
+	private final int failureCount;
+	private final long elapsedMillis;
+
+	public SweepReport(int userCount, int failureCount, long elapsedMillis) {
+		this.userCount = userCount;
+		this.failureCount = failureCount;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public int getUserCount() {
+		return userCount;
+	}
+
+	public int getFailureCount() {
+		return failureCount;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * @return tracked users per second, or 0 when the sweep took no measurable time
+	 */
+	public double getThroughput() {
+		return elapsedMillis == 0 ? 0 : userCount * 1000d / elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "Tracked " + userCount + " users (" + failureCount + " failures) in "
+				+ TimeUnit.MILLISECONDS.toSeconds(elapsedMillis) + " seconds, "
+				+ String.format("%.1f", getThroughput()) + " users/s.";
+	}
+}
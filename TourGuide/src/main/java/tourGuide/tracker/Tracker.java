@@ -5,57 +5,236 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import tourGuide.helper.NamedThreadFactory;
 import tourGuide.service.TourGuideService;
 import tourGuide.user.User;
 
-public class Tracker extends Thread {
+/**
+ * Tracks every user once per polling interval, on the cadence of a {@link TrackingSchedule}.
+ * Sweeps start on a fixed rate rather than a fixed delay, and each sweep is spread over
+ * the interval in time slices.
+ *
+ * Nothing is tracked until {@link #start()}. As a Spring bean the tracker starts with the
+ * application context and drains on shutdown: the slice being tracked is finished, waiting
+ * at most drainTimeoutMillis. The tracking engine, and its workers, belong to whoever built it,
+ * typically the TourGuideService. A stopped tracker cannot be started again, pause and resume it instead.
+ */
+public class Tracker implements SmartLifecycle {
+	public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 30000;
 	private Logger logger = LoggerFactory.getLogger(Tracker.class);
-	private static final long trackingPollingInterval = TimeUnit.MINUTES.toSeconds(5);
-	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+	private final ExecutorService executorService = Executors.newSingleThreadExecutor(new NamedThreadFactory("tracker"));
 	private final TourGuideService tourGuideService;
-	private boolean stop = false;
+	private final TrackingEngine trackingEngine;
+	private final TrackingSchedule schedule;
+	private final Timer sweepTimer = Timer.builder("tourguide.tracker.sweep")
+			.description("Time from the first to the last slice of a sweep")
+			.register(Metrics.globalRegistry);
+	private final Counter trackedUsers = Counter.builder("tourguide.tracker.sweep.users")
+			.description("Users tracked by the sweeps")
+			.register(Metrics.globalRegistry);
+	private final Counter failedUsers = Counter.builder("tourguide.tracker.sweep.failures")
+			.description("Users the sweeps failed to track")
+			.register(Metrics.globalRegistry);
+	private final Counter overruns = Counter.builder("tourguide.tracker.sweep.overruns")
+			.description("Sweeps that took longer than the polling interval")
+			.register(Metrics.globalRegistry);
+	// guards pausing and stopping, waking the tracker thread when either changes
+	private final Object stateLock = new Object();
+	private volatile boolean started = false;
+	private volatile boolean stop = false;
+	private volatile boolean paused = false;
+	private volatile long drainTimeoutMillis = DEFAULT_DRAIN_TIMEOUT_MILLIS;
 
 	public Tracker(TourGuideService tourGuideService) {
+		this(tourGuideService, tourGuideService.getTrackingEngine(), TrackingSchedule.DEFAULT_SCHEDULE);
+	}
+
+	public Tracker(TourGuideService tourGuideService, TrackingEngine trackingEngine) {
+		this(tourGuideService, trackingEngine, TrackingSchedule.DEFAULT_SCHEDULE);
+	}
+
+	public Tracker(TourGuideService tourGuideService, TrackingEngine trackingEngine, TrackingSchedule schedule) {
 		this.tourGuideService = tourGuideService;
-		
-		executorService.submit(this);
+		this.trackingEngine = trackingEngine;
+		this.schedule = schedule;
+	}
+	
+	public void setDrainTimeoutMillis(long drainTimeoutMillis) {
+		this.drainTimeoutMillis = drainTimeoutMillis;
 	}
 	
 	/**
-	 * Assures to shut down the Tracker thread
+	 * Starts sweeping, the first sweep starting right away.
+	 */
+	@Override
+	public synchronized void start() {
+		if(stop) {
+			throw new IllegalStateException("A stopped tracker cannot be started again");
+		}
+		if(!started) {
+			started = true;
+			executorService.submit(this::run);
+		}
+	}
+	
+	/**
+	 * Stops before the next slice, until resumed. The slice being tracked is finished.
+	 */
+	public void pause() {
+		paused = true;
+	}
+	
+	public void resume() {
+		synchronized(stateLock) {
+			paused = false;
+			stateLock.notifyAll();
+		}
+	}
+	
+	public boolean isPaused() {
+		return paused;
+	}
+	
+	@Override
+	public boolean isRunning() {
+		return started && !stop;
+	}
+	
+	/**
+	 * Drains the tracker: no slice is started anymore, and the slice being tracked is waited for,
+	 * at most drainTimeoutMillis.
+	 */
+	@Override
+	public void stop() {
+		stop(drainTimeoutMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * The tracker thread is woken if waiting for a slice or paused, but never interrupted, so the slice
+	 * being tracked runs to completion. It is interrupted only once the timeout elapsed.
+	 * @return false if the slice being tracked was still running after the timeout
+	 */
+	public boolean stop(long timeout, TimeUnit unit) {
+		signalStop();
+		executorService.shutdown();
+		boolean drained = false;
+		try {
+			drained = executorService.awaitTermination(timeout, unit);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if(!drained) {
+			logger.warn("Tracker did not drain within " + unit.toMillis(timeout) + " ms, abandoning the slice being tracked");
+			executorService.shutdownNow();
+		}
+		return drained;
+	}
+	
+	/**
+	 * Assures to shut down the Tracker thread, without waiting for the slice being tracked
 	 */
 	public void stopTracking() {
-		stop = true;
+		signalStop();
 		executorService.shutdownNow();
 	}
 	
-	@Override
-	public void run() {
-		StopWatch stopWatch = new StopWatch();
-		while(true) {
-			if(Thread.currentThread().isInterrupted() || stop) {
-				logger.debug("Tracker stopping");
+	private void signalStop() {
+		synchronized(stateLock) {
+			stop = true;
+			stateLock.notifyAll();
+		}
+	}
+	
+	private void run() {
+		long sweepStart = System.currentTimeMillis();
+		while(sleepUntil(sweepStart)) {
+			SweepReport report = sweep(sweepStart);
+			if(report == null) {
 				break;
 			}
-			
-			List<User> users = tourGuideService.getAllUsers();
-			logger.debug("Begin Tracker. Tracking " + users.size() + " users.");
-			stopWatch.start();
-			users.forEach(u -> tourGuideService.trackUserLocation(u));
-			stopWatch.stop();
-			logger.debug("Tracker Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds."); 
-			stopWatch.reset();
+			long now = System.currentTimeMillis();
+			recordSweep(report, schedule.isOverrun(sweepStart, now));
+			long nextSweepStart = schedule.getNextSweepStart(sweepStart, now);
+			if(nextSweepStart - sweepStart > schedule.getPollingIntervalMillis()) {
+				logger.warn("Skipping " + ((nextSweepStart - sweepStart) / schedule.getPollingIntervalMillis() - 1) + " overdue sweeps");
+			}
+			sweepStart = nextSweepStart;
+		}
+		logger.debug("Tracker stopping");
+	}
+	
+	/**
+	 * @return the report of the sweep, or null if the tracker was stopped during the sweep
+	 */
+	private SweepReport sweep(long sweepStart) {
+		long startedAt = System.currentTimeMillis();
+		List<List<User>> slices = schedule.slice(tourGuideService.getUserRepository().getAll());
+		int userCount = 0;
+		int failureCount = 0;
+		logger.debug("Begin Tracker. Tracking " + slices.stream().mapToInt(List::size).sum() + " users in " + slices.size() + " slices.");
+		for(int i = 0; i < slices.size(); i++) {
+			if(slices.get(i).isEmpty()) {
+				continue;
+			}
+			if(!sleepUntil(schedule.getSliceStart(sweepStart, i)) || !awaitResume()) {
+				return null;
+			}
+			SweepReport sliceReport = trackingEngine.trackUsers(slices.get(i));
+			userCount += sliceReport.getUserCount();
+			failureCount += sliceReport.getFailureCount();
+		}
+		SweepReport report = new SweepReport(userCount, failureCount, System.currentTimeMillis() - startedAt);
+		logger.debug("Tracker sweep finished. " + report);
+		return report;
+	}
+	
+	/**
+	 * @return false if the tracker was stopped while waiting
+	 */
+	private boolean sleepUntil(long time) {
+		synchronized(stateLock) {
+			try {
+				long delay;
+				while(!stop && (delay = time - System.currentTimeMillis()) > 0) {
+					stateLock.wait(delay);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return !stop && !Thread.currentThread().isInterrupted();
+	}
+	
+	/**
+	 * @return false if the tracker was stopped while paused
+	 */
+	private boolean awaitResume() {
+		synchronized(stateLock) {
 			try {
-				logger.debug("Tracker sleeping");
-				TimeUnit.SECONDS.sleep(trackingPollingInterval);
+				while(paused && !stop) {
+					stateLock.wait();
+				}
 			} catch (InterruptedException e) {
-				break;
+				Thread.currentThread().interrupt();
 			}
 		}
-		
+		return !stop && !Thread.currentThread().isInterrupted();
+	}
+	
+	private void recordSweep(SweepReport report, boolean overrun) {
+		sweepTimer.record(report.getElapsedMillis(), TimeUnit.MILLISECONDS);
+		trackedUsers.increment(report.getUserCount() - report.getFailureCount());
+		failedUsers.increment(report.getFailureCount());
+		if(overrun) {
+			overruns.increment();
+			logger.warn("Tracker sweep overran the " + schedule.getPollingIntervalMillis() + " ms polling interval. " + report);
+		}
 	}
 }
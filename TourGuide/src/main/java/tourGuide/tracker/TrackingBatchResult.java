@@ -0,0 +1,72 @@
+package tourGuide.tracker;
+
+import java.util.Collections;
+import java.util.List;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Outcome of tracking a batch of users through the tracking pipeline, see {@link TrackingEngine#trackUsersAsync}.
+ */
+public class TrackingBatchResult {
+	private final List<VisitedLocation> visitedLocations;
+	private final int locationFailureCount;
+	private final int rewardFailureCount;
+	private final long elapsedMillis;
+
+	public TrackingBatchResult(List<VisitedLocation> visitedLocations, int locationFailureCount, int rewardFailureCount, long elapsedMillis) {
+		this.visitedLocations = Collections.unmodifiableList(visitedLocations);
+		this.locationFailureCount = locationFailureCount;
+		this.rewardFailureCount = rewardFailureCount;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * @return the recorded locations in the order of the batch, null for the users that could not be located
+	 */
+	public List<VisitedLocation> getVisitedLocations() {
+		return visitedLocations;
+	}
+
+	public int getUserCount() {
+		return visitedLocations.size();
+	}
+
+	/**
+	 * @return users located, recorded and evaluated for rewards
+	 */
+	public int getSuccessCount() {
+		return getUserCount() - locationFailureCount - rewardFailureCount;
+	}
+
+	/**
+	 * @return users that could not be located, nothing was recorded for them
+	 */
+	public int getLocationFailureCount() {
+		return locationFailureCount;
+	}
+
+	/**
+	 * @return users whose location was recorded but whose rewards could not be calculated
+	 */
+	public int getRewardFailureCount() {
+		return rewardFailureCount;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * @return the batch as a sweep report, a user counting as failed unless it went through every stage
+	 */
+	public SweepReport toSweepReport() {
+		return new SweepReport(getUserCount(), locationFailureCount + rewardFailureCount, elapsedMillis);
+	}
+
+	@Override
+	public String toString() {
+		return "Tracked " + getUserCount() + " users (" + locationFailureCount + " location failures, "
+				+ rewardFailureCount + " reward failures) in " + elapsedMillis + " ms.";
+	}
+}
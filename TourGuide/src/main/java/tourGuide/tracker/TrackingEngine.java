@@ -0,0 +1,201 @@
+package tourGuide.tracker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.location.VisitedLocation;
+import tourGuide.helper.NamedThreadFactory;
+import tourGuide.helper.PendingTaskExecutor;
+import tourGuide.helper.WorkerPools;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.user.User;
+
+/**
+ * Tracks batches of users through a pipeline of three stages, each with its own parallelism:
+ * <ul>
+ * <li>the location is acquired on a pool of workers, see {@link WorkerPools}, whose concurrency is the
+ * maximum number of location calls in flight at any time,</li>
+ * <li>the location is appended to the user's history on the worker that acquired it,</li>
+ * <li>rewards are calculated on the rewards pool of the {@link RewardsService}.</li>
+ * </ul>
+ * Backpressure bounds both the location calls submitted and the users waiting for or running reward
+ * calculation. Batches are fed to the pipeline by a single submitter thread, which waits while either
+ * stage is full, so callers are never blocked. Slow reward lookups therefore hold location acquisition
+ * back only once maxPendingRewards users are queued behind them.
+ * The tracking pool's queue depth and active workers are published as the "tracking" executor metrics.
+ */
+public class TrackingEngine {
+	public static final int DEFAULT_MAX_IN_FLIGHT = 100;
+	public static final int DEFAULT_MAX_PENDING_REWARDS = 10_000;
+	private Logger logger = LoggerFactory.getLogger(TrackingEngine.class);
+	private final TourGuideService tourGuideService;
+	private final PendingTaskExecutor workers;
+	private final ExecutorService submitter = Executors.newSingleThreadExecutor(new NamedThreadFactory("tracking-submitter"));
+	private final Semaphore locationPermits;
+	private final Semaphore rewardPermits;
+
+	public TrackingEngine(TourGuideService tourGuideService) {
+		this(tourGuideService, DEFAULT_MAX_IN_FLIGHT);
+	}
+
+	public TrackingEngine(TourGuideService tourGuideService, int maxInFlight) {
+		this(tourGuideService, maxInFlight, DEFAULT_MAX_PENDING_REWARDS);
+	}
+
+	public TrackingEngine(TourGuideService tourGuideService, int maxInFlight, int maxPendingRewards) {
+		this(tourGuideService, maxInFlight, maxPendingRewards, WorkerPools.Mode.PLATFORM);
+	}
+
+	public TrackingEngine(TourGuideService tourGuideService, int maxInFlight, int maxPendingRewards, WorkerPools.Mode executionMode) {
+		if(maxInFlight < 1) {
+			throw new IllegalArgumentException("maxInFlight must be at least 1, got " + maxInFlight);
+		}
+		if(maxPendingRewards < 1) {
+			throw new IllegalArgumentException("maxPendingRewards must be at least 1, got " + maxPendingRewards);
+		}
+		this.tourGuideService = tourGuideService;
+		this.workers = new PendingTaskExecutor(WorkerPools.monitor(WorkerPools.newWorkerPool("tracking-worker", maxInFlight, executionMode), "tracking"));
+		this.locationPermits = new Semaphore(maxInFlight);
+		this.rewardPermits = new Semaphore(maxPendingRewards);
+	}
+
+	/**
+	 * Tracks every user of the batch and waits for the whole batch, rewards included, to finish.
+	 * A failure for one user is logged and counted, it does not abort the sweep.
+	 */
+	public SweepReport trackUsers(Collection<User> users) {
+		return trackUsersAsync(users).join().toSweepReport();
+	}
+
+	/**
+	 * Queues the batch for the submitter thread, which feeds its users to the pipeline as room frees up,
+	 * after the batches queued before it. A failure for one user is logged and counted, it does not abort
+	 * the batch. Users not submitted when the engine shuts down are counted as location failures.
+	 * @return a future completed once every user of the batch went through every stage
+	 */
+	public CompletableFuture<TrackingBatchResult> trackUsersAsync(Collection<User> users) {
+		BatchSubmission submission = new BatchSubmission(new ArrayList<>(users));
+		try {
+			submitter.execute(submission);
+		} catch (RejectedExecutionException e) {
+			submission.abandon();
+		}
+		return submission.result;
+	}
+
+	private CompletableFuture<TrackingBatchResult> submitBatch(List<User> batch, long startedAt) {
+		VisitedLocation[] visitedLocations = new VisitedLocation[batch.size()];
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[batch.size()];
+		AtomicInteger locationFailures = new AtomicInteger();
+		AtomicInteger rewardFailures = new AtomicInteger();
+		for(int i = 0; i < batch.size(); i++) {
+			User user = batch.get(i);
+			CompletableFuture<VisitedLocation> recorded = submit(user);
+			if(recorded == null) {
+				locationFailures.addAndGet(batch.size() - i);
+				Arrays.fill(futures, i, futures.length, CompletableFuture.completedFuture(null));
+				break;
+			}
+			int index = i;
+			futures[i] = recorded
+					.thenCompose(visitedLocation -> {
+						visitedLocations[index] = visitedLocation;
+						return calculateRewards(user).exceptionally(e -> {
+							rewardFailures.incrementAndGet();
+							logger.error("Unable to calculate rewards for user " + user.getUserName(), e);
+							return null;
+						});
+					})
+					.exceptionally(e -> {
+						locationFailures.incrementAndGet();
+						logger.warn("Unable to track user " + user.getUserName(), e);
+						return null;
+					})
+					.whenComplete((v, e) -> rewardPermits.release());
+		}
+		return CompletableFuture.allOf(futures).thenApply(v -> new TrackingBatchResult(Arrays.asList(visitedLocations),
+				locationFailures.get(), rewardFailures.get(), System.currentTimeMillis() - startedAt));
+	}
+
+	/**
+	 * Runs the location and history stages for the user once both stages have room for it.
+	 * @return the recorded location, or null if the thread was interrupted while waiting for room
+	 */
+	private CompletableFuture<VisitedLocation> submit(User user) {
+		try {
+			rewardPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		try {
+			locationPermits.acquire();
+		} catch (InterruptedException e) {
+			rewardPermits.release();
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		CompletableFuture<VisitedLocation> recorded = workers.supplyAsync(() -> tourGuideService.locateUser(user));
+		recorded.whenComplete((visitedLocation, e) -> locationPermits.release());
+		return recorded;
+	}
+
+	private CompletableFuture<Void> calculateRewards(User user) {
+		return tourGuideService.getRewardsService().calculateRewardsAsync(user);
+	}
+
+	/**
+	 * Stops tracking at once. The batches in progress complete, every user not tracked yet counted as a failure.
+	 */
+	public void shutdown() {
+		for(Runnable queued : submitter.shutdownNow()) {
+			((BatchSubmission) queued).abandon();
+		}
+		workers.shutdownNow();
+	}
+
+	private class BatchSubmission implements Runnable {
+		private final List<User> batch;
+		private final long startedAt = System.currentTimeMillis();
+		private final CompletableFuture<TrackingBatchResult> result = new CompletableFuture<>();
+
+		BatchSubmission(List<User> batch) {
+			this.batch = batch;
+		}
+
+		@Override
+		public void run() {
+			try {
+				submitBatch(batch, startedAt).whenComplete((batchResult, e) -> {
+					if(e != null) {
+						result.completeExceptionally(e);
+					} else {
+						result.complete(batchResult);
+					}
+				});
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		}
+
+		/**
+		 * Completes the batch without tracking anyone, every user counted as a location failure.
+		 */
+		void abandon() {
+			result.complete(new TrackingBatchResult(Arrays.asList(new VisitedLocation[batch.size()]), batch.size(), 0,
+					System.currentTimeMillis() - startedAt));
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package tourGuide.tracker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import tourGuide.user.User;
+
+/**
+ * When the Tracker tracks which users.
+ *
+ * Each sweep is split into time slices spread evenly over the polling interval, so the
+ * location provider sees a steady load rather than one burst. Users are ordered by the age
+ * of their latest location, stalest first, before being split, so users who have waited
+ * longest are tracked first. Users located more recently than freshLocationMillis ago, typically
+ * because their client pushes its fixes, are left out of the sweep.
+ */
+public class TrackingSchedule {
+	public static final long DEFAULT_POLLING_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	public static final int DEFAULT_SLICE_COUNT = 60;
+	public static final TrackingSchedule DEFAULT_SCHEDULE = new TrackingSchedule(DEFAULT_POLLING_INTERVAL_MILLIS, DEFAULT_SLICE_COUNT, OverrunPolicy.CATCH_UP);
+
+	/**
+	 * What to do when a sweep is still running once the next one is due.
+	 */
+	public enum OverrunPolicy {
+		/** start the next sweep right away */
+		CATCH_UP,
+		/** drop the sweeps that are overdue and wait for the next start on the original cadence */
+		SKIP
+	}
+
+	private final long pollingIntervalMillis;
+	private final int sliceCount;
+	private final OverrunPolicy overrunPolicy;
+	private final long freshLocationMillis;
+
+	public TrackingSchedule(long pollingIntervalMillis, int sliceCount, OverrunPolicy overrunPolicy) {
+		this(pollingIntervalMillis, sliceCount, overrunPolicy, 0);
+	}
+
+	/**
+	 * @param freshLocationMillis 0 to track every user on every sweep
+	 */
+	public TrackingSchedule(long pollingIntervalMillis, int sliceCount, OverrunPolicy overrunPolicy, long freshLocationMillis) {
+		if(pollingIntervalMillis < 1 || sliceCount < 1 || freshLocationMillis < 0) {
+			throw new IllegalArgumentException("Invalid tracking schedule: " + sliceCount + " slices every " + pollingIntervalMillis
+					+ " ms, locations fresh for " + freshLocationMillis + " ms");
+		}
+		this.pollingIntervalMillis = pollingIntervalMillis;
+		this.sliceCount = sliceCount;
+		this.overrunPolicy = overrunPolicy;
+		this.freshLocationMillis = freshLocationMillis;
+	}
+
+	public long getPollingIntervalMillis() {
+		return pollingIntervalMillis;
+	}
+
+	public int getSliceCount() {
+		return sliceCount;
+	}
+
+	public OverrunPolicy getOverrunPolicy() {
+		return overrunPolicy;
+	}
+
+	public long getFreshLocationMillis() {
+		return freshLocationMillis;
+	}
+
+	/**
+	 * @return the users split in {@link #getSliceCount()} slices of even size, some possibly
+	 * empty, stalest users first. Users never located come first of all.
+	 */
+	public List<List<User>> slice(Collection<User> users) {
+		return slice(users, System.currentTimeMillis());
+	}
+
+	/**
+	 * @return the users split as {@link #slice(Collection)} does, users located since now - freshLocationMillis left out
+	 */
+	public List<List<User>> slice(Collection<User> users, long now) {
+		long freshSince = freshLocationMillis == 0 ? Long.MAX_VALUE : now - freshLocationMillis;
+		// timestamps are read once, tracking workers may update them while sorting
+		StaleUser[] staleUsers = users.stream()
+				.map(StaleUser::new)
+				.filter(u -> u.latestLocationTime < freshSince)
+				.toArray(StaleUser[]::new);
+		Arrays.sort(staleUsers, Comparator.comparingLong(u -> u.latestLocationTime));
+		List<List<User>> slices = new ArrayList<>(sliceCount);
+		for(int i = 0; i < sliceCount; i++) {
+			int from = (int) ((long) staleUsers.length * i / sliceCount);
+			int to = (int) ((long) staleUsers.length * (i + 1) / sliceCount);
+			List<User> slice = new ArrayList<>(to - from);
+			for(int j = from; j < to; j++) {
+				slice.add(staleUsers[j].user);
+			}
+			slices.add(slice);
+		}
+		return slices;
+	}
+
+	/**
+	 * @return when the given slice of the sweep started at sweepStart is due
+	 */
+	public long getSliceStart(long sweepStart, int slice) {
+		return sweepStart + pollingIntervalMillis * slice / sliceCount;
+	}
+
+	/**
+	 * @return whether a sweep started at sweepStart and finished at now ran into the next one
+	 */
+	public boolean isOverrun(long sweepStart, long now) {
+		return now > sweepStart + pollingIntervalMillis;
+	}
+
+	/**
+	 * @return when the sweep following the one started at sweepStart is due, now being the end of that sweep
+	 */
+	public long getNextSweepStart(long sweepStart, long now) {
+		long next = sweepStart + pollingIntervalMillis;
+		if(next >= now) {
+			return next;
+		}
+		if(overrunPolicy == OverrunPolicy.CATCH_UP) {
+			return now;
+		}
+		long missedIntervals = (now - sweepStart + pollingIntervalMillis - 1) / pollingIntervalMillis;
+		return sweepStart + missedIntervals * pollingIntervalMillis;
+	}
+
+	private static class StaleUser {
+		private final User user;
+		private final long latestLocationTime;
+
+		StaleUser(User user) {
+			Date latestLocationTimestamp = user.getLatestLocationTimestamp();
+			this.user = user;
+			this.latestLocationTime = latestLocationTimestamp == null ? Long.MIN_VALUE : latestLocationTimestamp.getTime();
+		}
+	}
+}
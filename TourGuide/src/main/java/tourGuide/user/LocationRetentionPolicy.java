@@ -0,0 +1,42 @@
+package tourGuide.user;
+
+/**
+ * How much visited location history is kept per user: at most maxCount locations, and
+ * none older than maxAgeMillis (0 for no age limit). The most recent location is always kept.
+ */
+public class LocationRetentionPolicy {
+	public static final int DEFAULT_MAX_COUNT = 1000;
+	public static final long NO_AGE_LIMIT = 0;
+	// applied to users created without an explicit policy
+	private static volatile LocationRetentionPolicy defaultPolicy = new LocationRetentionPolicy(DEFAULT_MAX_COUNT, NO_AGE_LIMIT);
+	private final int maxCount;
+	private final long maxAgeMillis;
+
+	public LocationRetentionPolicy(int maxCount, long maxAgeMillis) {
+		if(maxCount < 1) {
+			throw new IllegalArgumentException("maxCount must be at least 1, got " + maxCount);
+		}
+		this.maxCount = maxCount;
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	public static LocationRetentionPolicy getDefaultPolicy() {
+		return defaultPolicy;
+	}
+
+	public static void setDefaultPolicy(LocationRetentionPolicy defaultPolicy) {
+		LocationRetentionPolicy.defaultPolicy = defaultPolicy;
+	}
+
+	public int getMaxCount() {
+		return maxCount;
+	}
+
+	public long getMaxAgeMillis() {
+		return maxAgeMillis;
+	}
+
+	public boolean hasAgeLimit() {
+		return maxAgeMillis > NO_AGE_LIMIT;
+	}
+}
@@ -3,8 +3,15 @@ package tourGuide.user;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import tripPricer.Provider;
 
@@ -13,16 +20,29 @@ public class User {
 	private final String userName;
 	private String phoneNumber;
 	private String emailAddress;
-	private Date latestLocationTimestamp;
-	private List<VisitedLocation> visitedLocations = new ArrayList<>();
-	private List<UserReward> userRewards = new ArrayList<>();
+	private volatile Date latestLocationTimestamp;
+	private final VisitedLocationHistory visitedLocations;
+	// copy-on-write so tracking workers can append while rewards are being read
+	private List<UserReward> userRewards = new CopyOnWriteArrayList<>();
+	// names of the rewarded attractions; gpsUtil hands out new attraction ids on every listing
+	private final Set<String> rewardedAttractions = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger totalRewardPoints = new AtomicInteger();
+	// sequence number of the first visited location not evaluated for rewards yet
+	private long rewardedLocationSequence;
+	// a lock rather than the monitor, so a virtual thread waiting on a reward lookup does not pin its carrier
+	private final ReentrantLock rewardsLock = new ReentrantLock();
 	private UserPreferences userPreferences = new UserPreferences();
 	private List<Provider> tripDeals = new ArrayList<>();
 	public User(UUID userId, String userName, String phoneNumber, String emailAddress) {
+		this(userId, userName, phoneNumber, emailAddress, LocationRetentionPolicy.getDefaultPolicy());
+	}
+	
+	public User(UUID userId, String userName, String phoneNumber, String emailAddress, LocationRetentionPolicy retentionPolicy) {
 		this.userId = userId;
 		this.userName = userName;
 		this.phoneNumber = phoneNumber;
 		this.emailAddress = emailAddress;
+		this.visitedLocations = new VisitedLocationHistory(userId, retentionPolicy);
 	}
 	
 	public UUID getUserId() {
@@ -57,28 +77,91 @@ public class User {
 		return latestLocationTimestamp;
 	}
 	
+	/**
+	 * Records the location, and its time as the latest location timestamp unless a later one was recorded already.
+	 */
 	public void addToVisitedLocations(VisitedLocation visitedLocation) {
 		visitedLocations.add(visitedLocation);
+		Date timeVisited = visitedLocation.timeVisited;
+		if(timeVisited != null) {
+			synchronized(visitedLocations) {
+				if(latestLocationTimestamp == null || timeVisited.after(latestLocationTimestamp)) {
+					latestLocationTimestamp = timeVisited;
+				}
+			}
+		}
 	}
 	
+	/**
+	 * @return a snapshot of the retained visited locations, oldest first
+	 */
 	public List<VisitedLocation> getVisitedLocations() {
-		return visitedLocations;
+		return visitedLocations.toList();
+	}
+	
+	public int getVisitedLocationCount() {
+		return visitedLocations.size();
 	}
 	
 	public void clearVisitedLocations() {
 		visitedLocations.clear();
 	}
 	
-	public void addUserReward(UserReward userReward) {
-		if(userRewards.stream().filter(r -> !r.attraction.attractionName.equals(userReward.attraction)).count() == 0) {
+	/**
+	 * @return the retained visited locations not evaluated for rewards yet, oldest first
+	 */
+	public List<VisitedLocation> getLocationsPendingRewards() {
+		synchronized(visitedLocations) {
+			// locations evicted before being evaluated are skipped
+			rewardedLocationSequence = Math.max(rewardedLocationSequence, visitedLocations.getAppendedCount() - visitedLocations.size());
+			return visitedLocations.getSince(rewardedLocationSequence);
+		}
+	}
+	
+	/**
+	 * Records that the given number of pending locations, from the oldest, were evaluated for rewards.
+	 */
+	public void markLocationsRewarded(int count) {
+		synchronized(visitedLocations) {
+			rewardedLocationSequence += count;
+		}
+	}
+	
+	/**
+	 * Adds the reward unless the user was already rewarded for its attraction.
+	 * @return true if the reward was added
+	 */
+	public boolean addUserReward(UserReward userReward) {
+		if(rewardedAttractions.add(userReward.attraction.attractionName)) {
 			userRewards.add(userReward);
+			totalRewardPoints.addAndGet(userReward.getRewardPoints());
+			return true;
 		}
+		return false;
+	}
+	
+	/**
+	 * Held while the user's rewards are calculated, so calculations for the same user are serialized.
+	 */
+	public ReentrantLock getRewardsLock() {
+		return rewardsLock;
+	}
+	
+	public boolean isRewardedFor(Attraction attraction) {
+		return rewardedAttractions.contains(attraction.attractionName);
 	}
 	
 	public List<UserReward> getUserRewards() {
 		return userRewards;
 	}
 	
+	/**
+	 * @return the running total of the reward points of the user's rewards, as they were when added
+	 */
+	public int getTotalRewardPoints() {
+		return totalRewardPoints.get();
+	}
+	
 	public UserPreferences getUserPreferences() {
 		return userPreferences;
 	}
@@ -87,8 +170,18 @@ public class User {
 		this.userPreferences = userPreferences;
 	}
 
+	/**
+	 * @return the most recent visited location, or null if the user has none
+	 */
 	public VisitedLocation getLastVisitedLocation() {
-		return visitedLocations.get(visitedLocations.size() - 1);
+		return visitedLocations.getLast();
+	}
+	
+	/**
+	 * @return the coordinates of the most recent visited location, or null if the user has none
+	 */
+	public Location getLastLocation() {
+		return visitedLocations.getLastLocation();
 	}
 	
 	public void setTripDeals(List<Provider> tripDeals) {
@@ -1,5 +1,8 @@
 package tourGuide.user;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
 import javax.money.CurrencyUnit;
 import javax.money.Monetary;
 
@@ -12,6 +15,9 @@ public class UserPreferences {
 	private CurrencyUnit currency = Monetary.getCurrency("USD");
 	private Money lowerPricePoint = Money.of(0, currency);
 	private Money highPricePoint = Money.of(Integer.MAX_VALUE, currency);
+	// price points in cents, so trip deals can be filtered without creating Money objects
+	private long lowerPricePointCents = toCents(lowerPricePoint);
+	private long highPricePointCents = toCents(highPricePoint);
 	private int tripDuration = 1;
 	private int ticketQuantity = 1;
 	private int numberOfAdults = 1;
@@ -34,6 +40,11 @@ public class UserPreferences {
 
 	public void setLowerPricePoint(Money lowerPricePoint) {
 		this.lowerPricePoint = lowerPricePoint;
+		this.lowerPricePointCents = toCents(lowerPricePoint);
+	}
+	
+	public long getLowerPricePointCents() {
+		return lowerPricePointCents;
 	}
 
 	public Money getHighPricePoint() {
@@ -42,6 +53,11 @@ public class UserPreferences {
 
 	public void setHighPricePoint(Money highPricePoint) {
 		this.highPricePoint = highPricePoint;
+		this.highPricePointCents = toCents(highPricePoint);
+	}
+	
+	public long getHighPricePointCents() {
+		return highPricePointCents;
 	}
 	
 	public int getTripDuration() {
@@ -75,5 +91,16 @@ public class UserPreferences {
 	public void setNumberOfChildren(int numberOfChildren) {
 		this.numberOfChildren = numberOfChildren;
 	}
+	
+	private static long toCents(Money money) {
+		BigDecimal cents = money.getNumberStripped().movePointRight(2).setScale(0, RoundingMode.HALF_UP);
+		if(cents.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+			return Long.MAX_VALUE;
+		}
+		if(cents.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) < 0) {
+			return Long.MIN_VALUE;
+		}
+		return cents.longValue();
+	}
 
 }
@@ -0,0 +1,85 @@
+package tourGuide.user;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * In-memory user store, safe for concurrent use without external locking.
+ *
+ * Users are indexed by user name and by user id. Views and pages iterate the live store
+ * and are weakly consistent: they never throw ConcurrentModificationException and may or
+ * may not reflect users added while they are being iterated.
+ */
+public class UserRepository implements MeterBinder {
+	private final ConcurrentMap<String, User> usersByName = new ConcurrentHashMap<>();
+	private final ConcurrentMap<UUID, User> usersById = new ConcurrentHashMap<>();
+
+	/**
+	 * Adds the user unless a user with the same name is already stored.
+	 * @return true if the user was added
+	 */
+	public boolean add(User user) {
+		if(usersByName.putIfAbsent(user.getUserName(), user) != null) {
+			return false;
+		}
+		usersById.put(user.getUserId(), user);
+		return true;
+	}
+
+	public User findByUserName(String userName) {
+		return usersByName.get(userName);
+	}
+
+	public User findByUserId(UUID userId) {
+		return usersById.get(userId);
+	}
+
+	/**
+	 * @return an unmodifiable live view of every user, nothing is copied
+	 */
+	public Collection<User> getAll() {
+		return Collections.unmodifiableCollection(usersByName.values());
+	}
+
+	/**
+	 * @return at most limit users, skipping the first offset ones in iteration order
+	 */
+	public List<User> getPage(int offset, int limit) {
+		return usersByName.values().stream()
+				.skip(offset)
+				.limit(limit)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * @return the users of one shard, users being spread over shardCount shards by user id
+	 */
+	public Stream<User> streamShard(int shard, int shardCount) {
+		if(shardCount < 1 || shard < 0 || shard >= shardCount) {
+			throw new IllegalArgumentException("Invalid shard " + shard + " of " + shardCount);
+		}
+		Stream<User> users = usersByName.values().stream();
+		return shardCount == 1 ? users : users.filter(u -> Math.floorMod(u.getUserId().hashCode(), shardCount) == shard);
+	}
+
+	public int size() {
+		return usersByName.size();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("tourguide.users", usersByName, ConcurrentMap::size)
+				.description("Users stored, all of them being tracked")
+				.register(registry);
+	}
+}
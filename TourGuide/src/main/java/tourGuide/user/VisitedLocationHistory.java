@@ -0,0 +1,156 @@
+package tourGuide.user;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Bounded visited location history of one user.
+ *
+ * Locations are kept in a ring buffer of primitive latitude, longitude and epoch millis
+ * arrays, which grows on demand up to the retention policy's maximum count and then
+ * overwrites the oldest entries. VisitedLocation objects are only created when read.
+ * Every appended location gets a sequence number, so readers can ask for the locations
+ * appended since a given point even after older ones were evicted.
+ */
+public class VisitedLocationHistory {
+	private static final int INITIAL_CAPACITY = 4;
+	private static final long NO_TIME = Long.MIN_VALUE;
+	private final UUID userId;
+	private final LocationRetentionPolicy retentionPolicy;
+	private double[] latitudes;
+	private double[] longitudes;
+	private long[] times;
+	// buffer position of the oldest location
+	private int head;
+	private int size;
+	private long appendedCount;
+
+	public VisitedLocationHistory(UUID userId, LocationRetentionPolicy retentionPolicy) {
+		this.userId = userId;
+		this.retentionPolicy = retentionPolicy;
+		int capacity = Math.min(INITIAL_CAPACITY, retentionPolicy.getMaxCount());
+		latitudes = new double[capacity];
+		longitudes = new double[capacity];
+		times = new long[capacity];
+	}
+
+	public synchronized void add(VisitedLocation visitedLocation) {
+		if(size == retentionPolicy.getMaxCount()) {
+			evictOldest();
+		} else if(size == latitudes.length) {
+			grow();
+		}
+		int tail = position(size);
+		latitudes[tail] = visitedLocation.location.latitude;
+		longitudes[tail] = visitedLocation.location.longitude;
+		times[tail] = visitedLocation.timeVisited == null ? NO_TIME : visitedLocation.timeVisited.getTime();
+		size++;
+		appendedCount++;
+		if(retentionPolicy.hasAgeLimit()) {
+			evictOlderThan(System.currentTimeMillis() - retentionPolicy.getMaxAgeMillis());
+		}
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of locations ever appended, which is also the sequence number of the next one
+	 */
+	public synchronized long getAppendedCount() {
+		return appendedCount;
+	}
+
+	/**
+	 * @return the most recent location, or null if there is none
+	 */
+	public synchronized VisitedLocation getLast() {
+		return size == 0 ? null : toVisitedLocation(position(size - 1));
+	}
+
+	/**
+	 * @return the coordinates of the most recent location, or null if there is none
+	 */
+	public synchronized Location getLastLocation() {
+		if(size == 0) {
+			return null;
+		}
+		int last = position(size - 1);
+		return new Location(latitudes[last], longitudes[last]);
+	}
+
+	/**
+	 * @return the retained locations, oldest first
+	 */
+	public synchronized List<VisitedLocation> toList() {
+		return since(appendedCount - size);
+	}
+
+	/**
+	 * @return the retained locations whose sequence number is at least the given one, oldest first
+	 */
+	public synchronized List<VisitedLocation> getSince(long sequence) {
+		return since(Math.max(sequence, appendedCount - size));
+	}
+
+	public synchronized void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	private List<VisitedLocation> since(long sequence) {
+		int count = (int) (appendedCount - sequence);
+		if(count <= 0) {
+			return Collections.emptyList();
+		}
+		List<VisitedLocation> locations = new ArrayList<>(count);
+		for(int i = size - count; i < size; i++) {
+			locations.add(toVisitedLocation(position(i)));
+		}
+		return locations;
+	}
+
+	private VisitedLocation toVisitedLocation(int position) {
+		Date timeVisited = times[position] == NO_TIME ? null : new Date(times[position]);
+		return new VisitedLocation(userId, new Location(latitudes[position], longitudes[position]), timeVisited);
+	}
+
+	private int position(int index) {
+		return (head + index) % latitudes.length;
+	}
+
+	private void evictOldest() {
+		head = position(1);
+		size--;
+	}
+
+	private void evictOlderThan(long cutoff) {
+		while(size > 1 && times[head] != NO_TIME && times[head] < cutoff) {
+			evictOldest();
+		}
+	}
+
+	private void grow() {
+		int capacity = Math.min(latitudes.length * 2, retentionPolicy.getMaxCount());
+		double[] newLatitudes = new double[capacity];
+		double[] newLongitudes = new double[capacity];
+		long[] newTimes = new long[capacity];
+		for(int i = 0; i < size; i++) {
+			int position = position(i);
+			newLatitudes[i] = latitudes[position];
+			newLongitudes[i] = longitudes[position];
+			newTimes[i] = times[position];
+		}
+		latitudes = newLatitudes;
+		longitudes = newLongitudes;
+		times = newTimes;
+		head = 0;
+	}
+}
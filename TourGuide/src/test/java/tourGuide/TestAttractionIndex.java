@@ -0,0 +1,123 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import rewardCentral.RewardCentral;
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.attraction.AttractionIndex;
+import tourGuide.attraction.GeoPoint;
+import tourGuide.service.RewardsService;
+
+public class TestAttractionIndex {
+
+	private final RewardsService rewardsService = new RewardsService(new GpsUtil(), new RewardCentral());
+	private final Random random = new Random(42);
+
+	@Test
+	public void findWithinMatchesLinearScan() {
+		List<Attraction> attractions = randomAttractions(500);
+		AttractionIndex index = new AttractionIndex(attractions);
+
+		for(int i = 0; i < 200; i++) {
+			Location location = randomLocation();
+			double miles = random.nextInt(2000);
+			List<Attraction> expected = attractions.stream()
+					.filter(a -> rewardsService.getDistance(a, location) <= miles)
+					.collect(Collectors.toList());
+			assertEquals(expected, index.findWithin(location, miles));
+		}
+	}
+
+	@Test
+	public void findNearestMatchesFullSort() {
+		List<Attraction> attractions = randomAttractions(500);
+		AttractionIndex index = new AttractionIndex(attractions);
+
+		for(int i = 0; i < 200; i++) {
+			Location location = randomLocation();
+			List<Attraction> expected = attractions.stream()
+					.sorted(Comparator.comparingDouble(a -> rewardsService.getDistance(a, location)))
+					.limit(5)
+					.collect(Collectors.toList());
+			assertEquals(expected, index.findNearest(location, 5));
+		}
+	}
+
+	@Test
+	public void findWithinWholeEarth() {
+		List<Attraction> attractions = randomAttractions(50);
+		AttractionIndex index = new AttractionIndex(attractions);
+
+		assertEquals(attractions, index.findWithin(randomLocation(), Integer.MAX_VALUE));
+		assertTrue(index.findNearest(randomLocation(), 100).size() == 50);
+	}
+
+	@Test
+	public void geoPointDistanceMatchesLawOfCosines() {
+		for(int i = 0; i < 10000; i++) {
+			Location a = randomLocation();
+			Location b = randomLocation();
+			double expected = lawOfCosinesDistance(a, b);
+			double miles = random.nextInt(20000);
+			assertEquals(expected, GeoPoint.of(a).distanceTo(GeoPoint.of(b)), 0);
+			assertEquals(expected, rewardsService.getDistance(a, b), 0);
+			assertEquals(expected <= miles, GeoPoint.of(a).isWithin(GeoPoint.of(b), miles));
+		}
+	}
+
+	@Test
+	public void attractionCatalogServesSnapshotUntilRefreshed() {
+		AttractionCatalog attractionCatalog = new AttractionCatalog(new GpsUtil());
+
+		AttractionIndex first = attractionCatalog.getSnapshot();
+		AttractionIndex second = attractionCatalog.getSnapshot();
+		AttractionIndex refreshed = attractionCatalog.refresh();
+
+		assertSame(first, second);
+		assertNotSame(first, refreshed);
+		assertSame(refreshed, attractionCatalog.getSnapshot());
+		assertEquals(2, attractionCatalog.getHitCount());
+		assertEquals(1, attractionCatalog.getMissCount());
+		assertEquals(2, attractionCatalog.getRefreshCount());
+	}
+
+	private List<Attraction> randomAttractions(int count) {
+		List<Attraction> attractions = new ArrayList<>();
+		for(int i = 0; i < count; i++) {
+			Location location = randomLocation();
+			attractions.add(new Attraction("attraction" + i, "city", "state", location.latitude, location.longitude));
+		}
+		return attractions;
+	}
+
+	// the distance formula RewardsService used before GeoPoint
+	private double lawOfCosinesDistance(Location loc1, Location loc2) {
+		double lat1 = Math.toRadians(loc1.latitude);
+		double lon1 = Math.toRadians(loc1.longitude);
+		double lat2 = Math.toRadians(loc2.latitude);
+		double lon2 = Math.toRadians(loc2.longitude);
+
+		double angle = Math.acos(Math.sin(lat1) * Math.sin(lat2)
+				+ Math.cos(lat1) * Math.cos(lat2) * Math.cos(lon1 - lon2));
+
+		return 1.15077945 * (60 * Math.toDegrees(angle));
+	}
+
+	private Location randomLocation() {
+		return new Location(-85 + random.nextDouble() * 170, -180 + random.nextDouble() * 360);
+	}
+}
@@ -0,0 +1,200 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.helper.InternalUserGenerator;
+import tourGuide.helper.WorkerPools;
+import tourGuide.provider.LocationProvider;
+import tourGuide.provider.SimulatedLatency;
+import tourGuide.provider.SimulatedLocationProvider;
+import tourGuide.provider.SimulatedPricingProvider;
+import tourGuide.provider.SimulatedRewardProvider;
+import tourGuide.service.RewardPointsCache;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.service.TripPricingService;
+import tourGuide.store.EventLogStore;
+import tourGuide.user.User;
+import tourGuide.user.UserRepository;
+import tourGuide.user.UserReward;
+
+public class TestEventLogStore {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final UUID jonId = UUID.randomUUID();
+	private final UUID janeId = UUID.randomUUID();
+
+	@After
+	public void tearDown() {
+		InternalTestHelper.setInternalUserNumber(100);
+	}
+
+	@Test
+	public void recordsSurviveReopeningAcrossSegments() throws Exception {
+		EventLogStore store = new EventLogStore(folder.getRoot().toPath(), 4, 1);
+		for(int i = 0; i < 10; i++) {
+			store.recordLocation(visitedLocation(jonId, i));
+			if(i % 3 == 0) {
+				store.recordLocation(visitedLocation(janeId, -i));
+			}
+		}
+		Attraction attraction = new Attraction("Disneyland", "Anaheim", "CA", 33.817595, -117.922008);
+		store.recordReward(jonId, new UserReward(visitedLocation(jonId, 10), attraction, 42)).get();
+		store.close();
+
+		EventLogStore reopened = new EventLogStore(folder.getRoot().toPath(), 4, 1);
+		assertEquals(15, reopened.size());
+		List<VisitedLocation> jonLocations = reopened.getVisitedLocations(jonId, 5);
+		assertEquals(5, jonLocations.size());
+		assertEquals(5, jonLocations.get(0).location.latitude, 0);
+		assertEquals(new Date(9000), jonLocations.get(4).timeVisited);
+		assertEquals(4, reopened.getVisitedLocations(janeId, 100).size());
+		List<UserReward> rewards = reopened.getUserRewards(jonId);
+		assertEquals(1, rewards.size());
+		assertEquals("Disneyland", rewards.get(0).attraction.attractionName);
+		assertEquals(42, rewards.get(0).getRewardPoints());
+		assertEquals(10, rewards.get(0).visitedLocation.location.latitude, 0);
+
+		UserRepository userRepository = new UserRepository();
+		User jon = new User(jonId, "jon", "000", "jon@tourGuide.com");
+		userRepository.add(jon);
+		userRepository.add(new User(UUID.randomUUID(), "jim", "000", "jim@tourGuide.com"));
+		assertEquals(1, reopened.restore(userRepository));
+		assertEquals(10, jon.getVisitedLocationCount());
+		assertTrue(jon.isRewardedFor(attraction));
+		reopened.close();
+	}
+
+	@Test
+	public void rewardsForNamesTooLongToRestoreAreRejected() throws Exception {
+		EventLogStore store = new EventLogStore(folder.getRoot().toPath(), 16, 1);
+		String longName = new String(new char[EventLogStore.MAX_ATTRACTION_NAME_BYTES - 1]).replace('\0', 'a') + "\u00e9";
+		Attraction attraction = new Attraction(longName, "Anaheim", "CA", 33.817595, -117.922008);
+
+		CompletableFuture<Void> recorded = store.recordReward(jonId, new UserReward(visitedLocation(jonId, 1), attraction, 42));
+		try {
+			recorded.get();
+			fail("Expected the reward to be rejected");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+		assertEquals(0, store.size());
+
+		Attraction fitting = new Attraction(longName.substring(0, EventLogStore.MAX_ATTRACTION_NAME_BYTES - 2) + "\u00e9", "Anaheim", "CA", 33.817595, -117.922008);
+		store.recordReward(jonId, new UserReward(visitedLocation(jonId, 1), fitting, 42)).get();
+		assertEquals(fitting.attractionName, store.getUserRewards(jonId).get(0).attraction.attractionName);
+		store.close();
+	}
+
+	@Test
+	public void recoveryStopsAtTornRecord() throws Exception {
+		EventLogStore store = new EventLogStore(folder.getRoot().toPath(), 16, 1);
+		for(int i = 0; i < 3; i++) {
+			store.recordLocation(visitedLocation(jonId, i));
+		}
+		store.close();
+		File segment = folder.getRoot().listFiles()[0];
+		try(RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.seek(EventLogStore.RECORD_SIZE + 40);
+			file.writeDouble(123);
+		}
+
+		EventLogStore recovered = new EventLogStore(folder.getRoot().toPath(), 16, 1);
+		assertEquals(1, recovered.size());
+		recovered.recordLocation(visitedLocation(jonId, 7)).get();
+		recovered.close();
+
+		EventLogStore reopened = new EventLogStore(folder.getRoot().toPath(), 16, 1);
+		List<VisitedLocation> locations = reopened.getVisitedLocations(jonId, 10);
+		assertEquals(2, locations.size());
+		assertEquals(7, locations.get(1).location.latitude, 0);
+		reopened.close();
+	}
+
+	@Test
+	public void backgroundLoadedUsersAreRestoredBeforeBeingTracked() throws Exception {
+		EventLogStore store = new EventLogStore(folder.getRoot().toPath(), 16, 1);
+		UUID userId = new InternalUserGenerator(7).generateUser(0).getUserId();
+		store.recordLocation(new VisitedLocation(userId, new Location(1, 1), new Date(1000))).get();
+		LocationProvider locationProvider = new SimulatedLocationProvider(26, SimulatedLatency.NONE, 42);
+		RewardsService rewardsService = new RewardsService(new AttractionCatalog(locationProvider), new RewardPointsCache(new SimulatedRewardProvider(SimulatedLatency.NONE, 42)));
+		InternalTestHelper.setInternalUserNumber(2000);
+		TourGuideService tourGuideService = new TourGuideService(locationProvider, rewardsService, new UserRepository(),
+				new TripPricingService(new SimulatedPricingProvider(SimulatedLatency.NONE, 42)), store, WorkerPools.Mode.PLATFORM,
+				new InternalUserGenerator(7), InternalTestHelper.Loading.BACKGROUND);
+
+		User user = tourGuideService.getUser("internalUser0");
+		while(user == null) {
+			Thread.sleep(1);
+			user = tourGuideService.getUser("internalUser0");
+		}
+		// tracked while the other users are still loading
+		tourGuideService.recordUserLocation(user, new VisitedLocation(userId, new Location(2, 2), new Date()));
+		tourGuideService.getInternalUsersLoaded().join();
+
+		assertEquals(2, user.getLastVisitedLocation().location.latitude, 0);
+		assertEquals(1, user.getVisitedLocations().stream().filter(visitedLocation -> visitedLocation.location.latitude == 1).count());
+		assertEquals(1, user.getVisitedLocations().stream().filter(visitedLocation -> visitedLocation.location.latitude == 2).count());
+		tourGuideService.shutdown();
+		rewardsService.shutdown();
+		store.close();
+	}
+
+	@Test
+	public void applicationRestoresRewardsAfterRestart() {
+		InternalTestHelper.setInternalUserNumber(5);
+		Attraction attraction;
+		try(ConfigurableApplicationContext context = startApplication()) {
+			TourGuideService tourGuideService = context.getBean(TourGuideService.class);
+			RewardsService rewardsService = context.getBean(RewardsService.class);
+			User user = tourGuideService.getUser("internalUser0");
+			attraction = rewardsService.getAttractionCatalog().getAttractions().get(0);
+			tourGuideService.recordUserLocation(user, new VisitedLocation(user.getUserId(), attraction, new Date()));
+			rewardsService.calculateRewards(user);
+			assertTrue(tourGuideService.getUserRewards(user).stream().anyMatch(r -> r.attraction.attractionName.equals(attraction.attractionName)));
+		}
+
+		try(ConfigurableApplicationContext context = startApplication()) {
+			TourGuideService tourGuideService = context.getBean(TourGuideService.class);
+			User user = tourGuideService.getUser("internalUser0");
+			assertTrue(user.isRewardedFor(attraction));
+			assertEquals(attraction.latitude, user.getLastVisitedLocation().location.latitude, 0);
+		}
+	}
+
+	private ConfigurableApplicationContext startApplication() {
+		return new SpringApplicationBuilder(Application.class)
+				.run("--server.port=0",
+						"--tourguide.store.directory=" + folder.getRoot().getAbsolutePath(),
+						"--tourguide.users.internal.seed=7",
+						"--tourguide.tracker.enabled=false");
+	}
+
+	private VisitedLocation visitedLocation(UUID userId, double latitude) {
+		return new VisitedLocation(userId, new Location(latitude, 0), new Date((long) Math.abs(latitude) * 1000));
+	}
+}
@@ -0,0 +1,69 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.helper.InternalUserGenerator;
+import tourGuide.helper.WorkerPools;
+import tourGuide.provider.GpsUtilLocationProvider;
+import tourGuide.provider.TripPricerPricingProvider;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.service.TripPricingService;
+import tourGuide.store.UserEventStore;
+import tourGuide.user.User;
+import tourGuide.user.UserRepository;
+
+public class TestInternalUserGenerator {
+
+	@Test
+	public void seededGeneratorsProduceTheSameUsers() {
+		long now = System.currentTimeMillis();
+		Map<String, User> first = new InternalUserGenerator(42, now).generate(1000)
+				.collect(Collectors.toMap(User::getUserName, Function.identity()));
+		List<User> second = new InternalUserGenerator(42, now).generate(1000).collect(Collectors.toList());
+
+		assertEquals(1000, first.size());
+		for(User user : second) {
+			User same = first.get(user.getUserName());
+			assertEquals(same.getUserId(), user.getUserId());
+			assertEquals(4, user.getUserId().version());
+			assertEquals(InternalUserGenerator.LOCATION_HISTORY_SIZE, user.getVisitedLocationCount());
+			for(int i = 0; i < InternalUserGenerator.LOCATION_HISTORY_SIZE; i++) {
+				VisitedLocation location = user.getVisitedLocations().get(i);
+				assertEquals(same.getVisitedLocations().get(i).location.latitude, location.location.latitude, 0);
+				assertEquals(same.getVisitedLocations().get(i).timeVisited, location.timeVisited);
+				assertTrue(now - location.timeVisited.getTime() < TimeUnit.DAYS.toMillis(InternalUserGenerator.LOCATION_HISTORY_DAYS));
+			}
+		}
+		assertNotEquals(first.get("internalUser0").getUserId(), new InternalUserGenerator(43, now).generateUser(0).getUserId());
+	}
+
+	@Test
+	public void usersLoadInTheBackground() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(500);
+		TourGuideService tourGuideService = new TourGuideService(new GpsUtilLocationProvider(gpsUtil), rewardsService, new UserRepository(),
+				new TripPricingService(new TripPricerPricingProvider()), UserEventStore.NONE, WorkerPools.Mode.PLATFORM,
+				new InternalUserGenerator(7), InternalTestHelper.Loading.BACKGROUND);
+
+		tourGuideService.getInternalUsersLoaded().join();
+
+		assertEquals(500, tourGuideService.getAllUsers().size());
+		assertEquals(new InternalUserGenerator(7).generateUser(123).getUserId(), tourGuideService.getUser("internalUser123").getUserId());
+	}
+}
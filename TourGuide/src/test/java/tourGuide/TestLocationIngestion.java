@@ -0,0 +1,143 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.ingestion.LocationBatchDecoder;
+import tourGuide.ingestion.LocationIngestionService;
+import tourGuide.provider.LocationProvider;
+import tourGuide.provider.SimulatedLatency;
+import tourGuide.provider.SimulatedLocationProvider;
+import tourGuide.provider.SimulatedPricingProvider;
+import tourGuide.provider.SimulatedRewardProvider;
+import tourGuide.service.RewardPointsCache;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.service.TripPricingService;
+import tourGuide.tracker.TrackingSchedule;
+import tourGuide.tracker.TrackingSchedule.OverrunPolicy;
+import tourGuide.user.User;
+import tourGuide.user.UserRepository;
+
+public class TestLocationIngestion {
+
+	@Test
+	public void decodesJsonAndBinaryBatches() {
+		UUID userId = UUID.randomUUID();
+		String json = "[{\"userId\":\"" + userId + "\",\"latitude\":33.8,\"longitude\":-117.9,\"timeVisited\":1000,\"accuracy\":5},"
+				+ "{\"timeVisited\":2000,\"longitude\":2.35,\"latitude\":48.85,\"userId\":\"" + userId + "\"}]";
+		List<VisitedLocation> fixes = LocationBatchDecoder.decodeJson(json.getBytes(StandardCharsets.UTF_8));
+		assertEquals(2, fixes.size());
+		assertEquals(userId, fixes.get(1).userId);
+		assertEquals(48.85, fixes.get(1).location.latitude, 0);
+		assertEquals(new Date(1000), fixes.get(0).timeVisited);
+
+		ByteBuffer binary = ByteBuffer.allocate(LocationBatchDecoder.BINARY_RECORD_SIZE);
+		binary.putLong(userId.getMostSignificantBits()).putLong(userId.getLeastSignificantBits())
+				.putDouble(33.8).putDouble(-117.9).putLong(1000).flip();
+		VisitedLocation fix = LocationBatchDecoder.decodeBinary(binary).get(0);
+		assertEquals(userId, fix.userId);
+		assertEquals(-117.9, fix.location.longitude, 0);
+
+		assertInvalid("[{\"userId\":\"" + userId + "\",\"latitude\":91,\"longitude\":0,\"timeVisited\":0}]");
+		assertInvalid("[{\"userId\":\"" + userId + "\",\"latitude\":0,\"longitude\":0}]");
+		assertInvalid("[{\"userId\":");
+		assertInvalid("[{\"userId\":null,\"latitude\":0,\"longitude\":0,\"timeVisited\":0}]");
+		assertInvalid("[{\"userId\":\"" + userId + "\",\"latitude\":0,\"longitude\":0,\"timeVisited\":null}]");
+		assertInvalid("[{\"userId\":\"not-a-uuid\",\"latitude\":0,\"longitude\":0,\"timeVisited\":0}]");
+	}
+
+	@Test
+	public void recordsPushedFixesWithRewardsAndRejectsWhenFull() {
+		LocationProvider locationProvider = new SimulatedLocationProvider(26, SimulatedLatency.NONE, 42);
+		SimulatedLatency slowRewards = new SimulatedLatency(SimulatedLatency.Distribution.FIXED, 300, 300, 0, 42);
+		RewardsService rewardsService = new RewardsService(new AttractionCatalog(locationProvider), new RewardPointsCache(new SimulatedRewardProvider(slowRewards, 42)));
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(locationProvider, rewardsService, new UserRepository(), new TripPricingService(new SimulatedPricingProvider(SimulatedLatency.NONE, 42)));
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		tourGuideService.addUser(user);
+		Attraction attraction = rewardsService.getAttractionCatalog().getAttractions().get(0);
+		LocationIngestionService ingestion = new LocationIngestionService(tourGuideService, 3, 2);
+
+		assertTrue(ingestion.offer(Arrays.asList(fix(user.getUserId(), attraction.latitude, attraction.longitude), fix(UUID.randomUUID(), 1, 1), fix(user.getUserId(), 0, 0))));
+		// the first micro-batch holds its room while its reward is looked up
+		assertFalse(ingestion.offer(Arrays.asList(fix(user.getUserId(), 2, 2))));
+		assertTrue(ingestion.shutdown(5, TimeUnit.SECONDS));
+
+		assertEquals(2, user.getVisitedLocationCount());
+		assertEquals(1, user.getUserRewards().size());
+		assertEquals(attraction.attractionName, user.getUserRewards().get(0).attraction.attractionName);
+		assertFalse(ingestion.offer(Arrays.asList(fix(user.getUserId(), 0, 0))));
+	}
+
+	@Test
+	public void recordsFixesOldestFirstAndSkipsStaleOnes() {
+		LocationProvider locationProvider = new SimulatedLocationProvider(26, SimulatedLatency.NONE, 42);
+		RewardsService rewardsService = new RewardsService(new AttractionCatalog(locationProvider), new RewardPointsCache(new SimulatedRewardProvider(SimulatedLatency.NONE, 42)));
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(locationProvider, rewardsService, new UserRepository(), new TripPricingService(new SimulatedPricingProvider(SimulatedLatency.NONE, 42)));
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(5, 5), new Date(5000)));
+		tourGuideService.addUser(user);
+		LocationIngestionService ingestion = new LocationIngestionService(tourGuideService, 10, 10);
+
+		assertTrue(ingestion.offer(Arrays.asList(fixAt(user.getUserId(), 8, 8000), fixAt(user.getUserId(), 1, 1000), fixAt(user.getUserId(), 6, 6000))));
+		assertTrue(ingestion.shutdown(5, TimeUnit.SECONDS));
+
+		// the fixes may be split over micro-batches, a fix older than one recorded before is skipped
+		List<VisitedLocation> history = user.getVisitedLocations();
+		for(int i = 1; i < history.size(); i++) {
+			assertFalse(history.get(i).timeVisited.before(history.get(i - 1).timeVisited));
+		}
+		assertTrue(history.stream().noneMatch(visitedLocation -> visitedLocation.timeVisited.getTime() == 1000));
+		assertEquals(new Date(8000), user.getLatestLocationTimestamp());
+		assertEquals(8, user.getLastLocation().latitude, 0);
+		tourGuideService.shutdown();
+		rewardsService.shutdown();
+	}
+
+	@Test
+	public void freshlyLocatedUsersAreLeftOutOfTheSweep() {
+		User pushing = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		pushing.addToVisitedLocations(fix(pushing.getUserId(), 0, 0));
+		User polled = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+		polled.addToVisitedLocations(new VisitedLocation(polled.getUserId(), new Location(0, 0), new Date(0)));
+
+		List<List<User>> slices = new TrackingSchedule(60000, 1, OverrunPolicy.CATCH_UP, 30000).slice(Arrays.asList(pushing, polled));
+
+		assertEquals(Arrays.asList(polled), slices.get(0));
+	}
+
+	private VisitedLocation fix(UUID userId, double latitude, double longitude) {
+		return new VisitedLocation(userId, new Location(latitude, longitude), new Date());
+	}
+
+	private VisitedLocation fixAt(UUID userId, double latitude, long timeVisited) {
+		return new VisitedLocation(userId, new Location(latitude, latitude), new Date(timeVisited));
+	}
+
+	private void assertInvalid(String json) {
+		try {
+			LocationBatchDecoder.decodeJson(json.getBytes(StandardCharsets.UTF_8));
+		} catch (IllegalArgumentException e) {
+			return;
+		}
+		throw new AssertionError("Expected " + json + " to be rejected");
+	}
+}
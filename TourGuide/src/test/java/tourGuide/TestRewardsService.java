@@ -2,10 +2,18 @@ package tourGuide;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.junit.BeforeClass;
 import org.junit.Ignore;
@@ -13,12 +21,18 @@ import org.junit.Test;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import tourGuide.attraction.AttractionCatalog;
 import tourGuide.helper.InternalTestHelper;
+import tourGuide.provider.LocationProvider;
+import tourGuide.provider.RewardCentralRewardProvider;
+import tourGuide.service.RewardPointsCache;
 import tourGuide.service.RewardsService;
 import tourGuide.service.TourGuideService;
 import tourGuide.user.User;
+import tourGuide.user.UserRepository;
 import tourGuide.user.UserReward;
 
 public class TestRewardsService {
@@ -41,11 +55,143 @@ public class TestRewardsService {
 		Attraction attraction = gpsUtil.getAttractions().get(0);
 		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
 		tourGuideService.trackUserLocation(user);
+		// rewards are calculated in the background, wait for them
+		rewardsService.calculateRewardsAsync(user).join();
 		List<UserReward> userRewards = user.getUserRewards();
-		tourGuideService.tracker.stopTracking();
 		assertTrue(userRewards.size() == 1);
 	}
 	
+	@Test
+	public void calculateRewardsForAllUsers() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		List<User> users = new ArrayList<>();
+		for(int i = 0; i < 10; i++) {
+			User user = new User(UUID.randomUUID(), "jon" + i, "000", "jon" + i + "@tourGuide.com");
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+			users.add(user);
+		}
+		
+		rewardsService.calculateRewards(users);
+		rewardsService.shutdown();
+		
+		for(User user : users) {
+			assertEquals(1, user.getUserRewards().size());
+		}
+	}
+	
+	@Test
+	public void calculateRewardsOnlyEvaluatesNewLocations() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(0, 0), new Date()));
+		
+		rewardsService.calculateRewards(user);
+		assertTrue(user.getUserRewards().isEmpty());
+		assertTrue(user.getLocationsPendingRewards().isEmpty());
+		
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+		assertEquals(1, user.getLocationsPendingRewards().size());
+		
+		rewardsService.calculateRewards(user);
+		rewardsService.calculateRewards(user);
+		rewardsService.shutdown();
+		assertEquals(1, user.getUserRewards().size());
+		assertTrue(user.getLocationsPendingRewards().isEmpty());
+	}
+	
+	@Test
+	public void addUserRewardIgnoresRewardedAttraction() {
+		GpsUtil gpsUtil = new GpsUtil();
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attraction, new Date());
+		ExecutorService executorService = Executors.newFixedThreadPool(10);
+		
+		List<CompletableFuture<Boolean>> added = new ArrayList<>();
+		for(int i = 0; i < 10; i++) {
+			added.add(CompletableFuture.supplyAsync(() -> user.addUserReward(new UserReward(visitedLocation, attraction, 10)), executorService));
+		}
+		long addedCount = added.stream().map(CompletableFuture::join).filter(a -> a).count();
+		executorService.shutdown();
+		
+		assertEquals(1, addedCount);
+		assertEquals(1, user.getUserRewards().size());
+		assertEquals(10, user.getTotalRewardPoints());
+		assertTrue(user.isRewardedFor(attraction));
+		assertFalse(user.isRewardedFor(gpsUtil.getAttractions().get(1)));
+	}
+	
+	@Test
+	public void rewardPointsCacheMergesConcurrentLookups() {
+		AtomicInteger lookups = new AtomicInteger();
+		RewardPointsCache rewardPointsCache = new RewardPointsCache(new RewardCentralRewardProvider(new RewardCentral() {
+			@Override
+			public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+				lookups.incrementAndGet();
+				return super.getAttractionRewardPoints(attractionId, userId);
+			}
+		}));
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+		ExecutorService executorService = Executors.newFixedThreadPool(20);
+		
+		List<CompletableFuture<Integer>> points = new ArrayList<>();
+		for(int i = 0; i < 20; i++) {
+			points.add(CompletableFuture.supplyAsync(() -> rewardPointsCache.getRewardPoints(attractionId, userId), executorService));
+		}
+		Set<Integer> distinctPoints = points.stream().map(CompletableFuture::join).collect(Collectors.toSet());
+		executorService.shutdown();
+		
+		assertEquals(1, lookups.get());
+		assertEquals(1, distinctPoints.size());
+		assertEquals(distinctPoints.iterator().next().intValue(), rewardPointsCache.getRewardPoints(attractionId, userId));
+	}
+	
+	@Test
+	public void ruleChangesRewardNewlyQualifyingLocations() throws InterruptedException {
+		List<Attraction> attractions = new CopyOnWriteArrayList<>();
+		attractions.add(new Attraction("Disneyland", "Anaheim", "CA", 33.817595, -117.922008));
+		AttractionCatalog attractionCatalog = new AttractionCatalog(new LocationProvider() {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public List<Attraction> getAttractions() {
+				return new ArrayList<>(attractions);
+			}
+		});
+		RewardsService rewardsService = new RewardsService(attractionCatalog, new RewardPointsCache(new RewardCentralRewardProvider(new RewardCentral())));
+		UserRepository userRepository = new UserRepository();
+		rewardsService.setUserRepository(userRepository);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		userRepository.add(user);
+		// about 20 miles north of Disneyland
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(34.117595, -117.922008), new Date()));
+		rewardsService.calculateRewards(user);
+		assertEquals(0, user.getUserRewards().size());
+
+		assertEquals(0, rewardsService.setProximityBuffer(5).join().intValue());
+		assertEquals(1, rewardsService.setProximityBuffer(30).join().intValue());
+		assertEquals(1, user.getUserRewards().size());
+
+		attractions.add(new Attraction("Griffith Observatory", "Los Angeles", "CA", 34.118434, -118.300393));
+		attractions.add(new Attraction("Mount Rushmore", "Keystone", "SD", 43.879102, -103.459067));
+		attractionCatalog.refresh();
+		for(int i = 0; i < 100 && user.getUserRewards().size() < 2; i++) {
+			Thread.sleep(50);
+		}
+		rewardsService.shutdown();
+
+		assertEquals(2, user.getUserRewards().size());
+		assertEquals("Griffith Observatory", user.getUserRewards().get(1).attraction.attractionName);
+	}
+	
 	@Test
 	public void isWithinAttractionProximity() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -66,7 +212,6 @@ public class TestRewardsService {
 		
 		rewardsService.calculateRewards(tourGuideService.getAllUsers().get(0));
 		List<UserReward> userRewards = tourGuideService.getUserRewards(tourGuideService.getAllUsers().get(0));
-		tourGuideService.tracker.stopTracking();
 
 		assertEquals(gpsUtil.getAttractions().size(), userRewards.size());
 	}
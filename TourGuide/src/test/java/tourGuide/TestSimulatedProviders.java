@@ -0,0 +1,80 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import tourGuide.provider.MeteredRewardProvider;
+import tourGuide.provider.PricingProvider;
+import tourGuide.provider.RewardProvider;
+import tourGuide.provider.SimulatedLatency;
+import tourGuide.provider.SimulatedLatency.Distribution;
+import tourGuide.provider.SimulatedLocationProvider;
+import tourGuide.provider.SimulatedPricingProvider;
+import tourGuide.provider.SimulatedProviderException;
+import tourGuide.provider.SimulatedRewardProvider;
+import tripPricer.Provider;
+
+public class TestSimulatedProviders {
+
+	@Test
+	public void sameSeedReplaysSameData() {
+		UUID userId = UUID.randomUUID();
+		SimulatedLocationProvider first = new SimulatedLocationProvider(100, SimulatedLatency.NONE, 7);
+		SimulatedLocationProvider second = new SimulatedLocationProvider(100, SimulatedLatency.NONE, 7);
+		
+		List<Attraction> attractions = first.getAttractions();
+		assertEquals(100, attractions.size());
+		assertEquals(attractions.get(42).latitude, second.getAttractions().get(42).latitude, 0);
+		assertEquals(first.getUserLocation(userId).location.longitude, second.getUserLocation(userId).location.longitude, 0);
+		
+		UUID attractionId = attractions.get(0).attractionId;
+		int points = new SimulatedRewardProvider(SimulatedLatency.NONE, 7).getAttractionRewardPoints(attractionId, userId);
+		assertEquals(points, new SimulatedRewardProvider(SimulatedLatency.NONE, 7).getAttractionRewardPoints(attractionId, userId));
+		assertTrue(points >= 1 && points <= 1000);
+		
+		PricingProvider pricingProvider = new SimulatedPricingProvider(SimulatedLatency.NONE, 7);
+		List<Provider> providers = pricingProvider.getPrice("key", userId, 2, 1, 5, 0);
+		assertEquals(5, providers.size());
+		assertEquals(providers.get(3).price, pricingProvider.getPrice("key", userId, 2, 1, 5, 0).get(3).price, 0);
+	}
+
+	@Test
+	public void meteredProviderTimesCallsByOutcome() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		RewardProvider rewardProvider = new MeteredRewardProvider(new SimulatedRewardProvider(
+				new SimulatedLatency(Distribution.FIXED, 0, 0, 0.5, 7), 7), registry);
+		int failures = 0;
+		for(int i = 0; i < 100; i++) {
+			try {
+				rewardProvider.getAttractionRewardPoints(UUID.randomUUID(), UUID.randomUUID());
+			} catch (SimulatedProviderException e) {
+				failures++;
+			}
+		}
+		
+		assertEquals(failures, registry.get("tourguide.provider.calls").tag("outcome", "failure").timer().count());
+		assertEquals(100 - failures, registry.get("tourguide.provider.calls").tag("outcome", "success").timer().count());
+		assertEquals(0, registry.get("tourguide.provider.calls.active").gauge().value(), 0);
+	}
+
+	@Test
+	public void failsTheConfiguredShareOfCalls() {
+		SimulatedLatency latency = new SimulatedLatency(Distribution.FIXED, 0, 0, 0.25, 7);
+		int failures = 0;
+		for(int i = 0; i < 10000; i++) {
+			try {
+				latency.simulateCall("test");
+			} catch (SimulatedProviderException e) {
+				failures++;
+			}
+		}
+		assertTrue("failures: " + failures, failures > 2200 && failures < 2800);
+	}
+}
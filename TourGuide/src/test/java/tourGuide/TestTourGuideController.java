@@ -0,0 +1,177 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.jsoniter.JsonIterator;
+import com.jsoniter.any.Any;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.ingestion.LocationBatchDecoder;
+import tourGuide.ingestion.LocationIngestionService;
+import tourGuide.provider.LocationProvider;
+import tourGuide.provider.SimulatedLatency;
+import tourGuide.provider.SimulatedLocationProvider;
+import tourGuide.provider.SimulatedPricingProvider;
+import tourGuide.provider.SimulatedRewardProvider;
+import tourGuide.service.RewardPointsCache;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.service.TripPricingService;
+import tourGuide.user.User;
+import tourGuide.user.UserRepository;
+
+public class TestTourGuideController {
+
+	private TourGuideService tourGuideService;
+	private LocationIngestionService locationIngestionService;
+	private MockMvc mockMvc;
+	private final Map<String, Location> lastLocations = new HashMap<>();
+
+	@Before
+	public void setUp() {
+		LocationProvider locationProvider = new SimulatedLocationProvider(26, SimulatedLatency.NONE, 42);
+		RewardsService rewardsService = new RewardsService(new AttractionCatalog(locationProvider), new RewardPointsCache(new SimulatedRewardProvider(SimulatedLatency.NONE, 42)));
+		InternalTestHelper.setInternalUserNumber(0);
+		tourGuideService = new TourGuideService(locationProvider, rewardsService, new UserRepository(), new TripPricingService(new SimulatedPricingProvider(SimulatedLatency.NONE, 42)));
+		for(int i = 0; i < 10; i++) {
+			User user = new User(UUID.randomUUID(), "jon" + i, "000", "jon" + i + "@tourGuide.com");
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(0, 0), new Date(0)));
+			Location lastLocation = new Location(i, -i);
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), lastLocation, new Date(1000)));
+			tourGuideService.addUser(user);
+			lastLocations.put(user.getUserId().toString(), lastLocation);
+		}
+		// never located, left out of the mapping
+		tourGuideService.addUser(new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com"));
+		locationIngestionService = new LocationIngestionService(tourGuideService, 2, 2);
+		TourGuideController controller = new TourGuideController();
+		controller.tourGuideService = tourGuideService;
+		controller.locationIngestionService = locationIngestionService;
+		mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+	}
+
+	@After
+	public void tearDown() {
+		locationIngestionService.shutdown();
+		tourGuideService.shutdown();
+		tourGuideService.getRewardsService().shutdown();
+	}
+
+	@Test
+	public void getAllCurrentLocationsMapsUserIdsToTheirLastLocation() throws Exception {
+		Map<String, Any> locations = getAllCurrentLocations("");
+
+		assertEquals(lastLocations.keySet(), locations.keySet());
+		for(Map.Entry<String, Any> entry : locations.entrySet()) {
+			Location expected = lastLocations.get(entry.getKey());
+			assertEquals(2, entry.getValue().keys().size());
+			assertEquals(expected.latitude, entry.getValue().toDouble("latitude"), 0);
+			assertEquals(expected.longitude, entry.getValue().toDouble("longitude"), 0);
+		}
+	}
+
+	@Test
+	public void getAllCurrentLocationsPagesAndShards() throws Exception {
+		Set<String> paged = new HashSet<>();
+		for(int offset = 0; offset < 11; offset += 4) {
+			Map<String, Any> page = getAllCurrentLocations("?offset=" + offset + "&limit=4");
+			assertTrue(page.size() <= 4);
+			for(String userId : page.keySet()) {
+				assertTrue("user " + userId + " on two pages", paged.add(userId));
+			}
+		}
+		assertEquals(lastLocations.keySet(), paged);
+		assertTrue(getAllCurrentLocations("?offset=11").isEmpty());
+
+		Set<String> sharded = new HashSet<>();
+		for(int shard = 0; shard < 3; shard++) {
+			for(String userId : getAllCurrentLocations("?shard=" + shard + "&shardCount=3").keySet()) {
+				assertTrue("user " + userId + " in two shards", sharded.add(userId));
+			}
+		}
+		assertEquals(lastLocations.keySet(), sharded);
+	}
+
+	@Test
+	public void getAllCurrentLocationsRejectsInvalidParameters() throws Exception {
+		for(String query : new String[] {"?offset=-1", "?limit=-1", "?shardCount=0", "?shard=-1", "?shard=3&shardCount=3", "?limit=ten"}) {
+			mockMvc.perform(get("/getAllCurrentLocations" + query)).andExpect(status().isBadRequest());
+		}
+		assertTrue(getAllCurrentLocations("?limit=0").isEmpty());
+	}
+
+	@Test
+	public void postLocationsAcceptsJsonAndBinaryBatches() throws Exception {
+		User user = tourGuideService.getUser("jane");
+		postLocations(MediaType.APPLICATION_JSON, ("[{\"userId\":\"" + user.getUserId() + "\",\"latitude\":33.8,\"longitude\":-117.9,\"timeVisited\":1000}]")
+				.getBytes(StandardCharsets.UTF_8))
+				.andExpect(status().isAccepted());
+		ByteBuffer binary = ByteBuffer.allocate(LocationBatchDecoder.BINARY_RECORD_SIZE);
+		binary.putLong(user.getUserId().getMostSignificantBits()).putLong(user.getUserId().getLeastSignificantBits())
+				.putDouble(48.85).putDouble(2.35).putLong(2000);
+		postLocations(MediaType.APPLICATION_OCTET_STREAM, binary.array()).andExpect(status().isAccepted());
+		assertTrue(locationIngestionService.shutdown(5, TimeUnit.SECONDS));
+
+		assertEquals(2, user.getVisitedLocationCount());
+		assertEquals(48.85, user.getLastLocation().latitude, 0);
+	}
+
+	@Test
+	public void postLocationsRejectsInvalidBatches() throws Exception {
+		String fix = "{\"userId\":\"" + UUID.randomUUID() + "\",\"latitude\":0,\"longitude\":0,\"timeVisited\":0}";
+		for(String json : new String[] {"[{\"userId\":", "[{\"userId\":null,\"latitude\":0,\"longitude\":0,\"timeVisited\":0}]", "[{\"latitude\":0,\"longitude\":0,\"timeVisited\":0}]", "[" + fix + "," + fix + "," + fix + "]"}) {
+			postLocations(MediaType.APPLICATION_JSON, json.getBytes(StandardCharsets.UTF_8)).andExpect(status().isBadRequest());
+		}
+		postLocations(MediaType.APPLICATION_OCTET_STREAM, new byte[LocationBatchDecoder.BINARY_RECORD_SIZE - 1]).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void postLocationsAsksToRetryWhenTheQueueRefusesTheBatch() throws Exception {
+		assertTrue(locationIngestionService.shutdown(5, TimeUnit.SECONDS));
+
+		String json = "[{\"userId\":\"" + UUID.randomUUID() + "\",\"latitude\":0,\"longitude\":0,\"timeVisited\":0}]";
+		postLocations(MediaType.APPLICATION_JSON, json.getBytes(StandardCharsets.UTF_8))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+	}
+
+	private ResultActions postLocations(MediaType contentType, byte[] body) throws Exception {
+		return mockMvc.perform(post("/postLocations").contentType(contentType).content(body));
+	}
+
+	private Map<String, Any> getAllCurrentLocations(String query) throws Exception {
+		String body = mockMvc.perform(get("/getAllCurrentLocations" + query))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse().getContentAsString();
+		return JsonIterator.deserialize(body).asMap();
+	}
+}
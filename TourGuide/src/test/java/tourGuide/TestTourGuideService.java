@@ -1,12 +1,22 @@
 package tourGuide;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
+import org.javamoney.moneta.Money;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -15,11 +25,16 @@ import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import tourGuide.dto.NearbyAttraction;
 import tourGuide.helper.InternalTestHelper;
+import tourGuide.provider.TripPricerPricingProvider;
 import tourGuide.service.RewardsService;
 import tourGuide.service.TourGuideService;
+import tourGuide.service.TripPricingService;
 import tourGuide.user.User;
+import tourGuide.user.UserRepository;
 import tripPricer.Provider;
+import tripPricer.TripPricer;
 
 public class TestTourGuideService {
 
@@ -36,7 +51,6 @@ public class TestTourGuideService {
 		
 		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
 		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
-		tourGuideService.tracker.stopTracking();
 		assertTrue(visitedLocation.userId.equals(user.getUserId()));
 	}
 	
@@ -56,8 +70,6 @@ public class TestTourGuideService {
 		User retrivedUser = tourGuideService.getUser(user.getUserName());
 		User retrivedUser2 = tourGuideService.getUser(user2.getUserName());
 
-		tourGuideService.tracker.stopTracking();
-		
 		assertEquals(user, retrivedUser);
 		assertEquals(user2, retrivedUser2);
 	}
@@ -77,12 +89,36 @@ public class TestTourGuideService {
 		
 		List<User> allUsers = tourGuideService.getAllUsers();
 
-		tourGuideService.tracker.stopTracking();
-		
 		assertTrue(allUsers.contains(user));
 		assertTrue(allUsers.contains(user2));
 	}
 	
+	@Test
+	public void userRepositoryIndexesUsersByNameAndId() {
+		UserRepository userRepository = new UserRepository();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User sameName = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		
+		IntStream.range(0, 100).parallel().forEach(i -> 
+			userRepository.add(new User(UUID.randomUUID(), "jon" + (i % 50), "000", "jon@tourGuide.com")));
+		
+		assertTrue(userRepository.add(user));
+		assertFalse(userRepository.add(sameName));
+		assertEquals(51, userRepository.size());
+		assertEquals(user, userRepository.findByUserName("jon"));
+		assertEquals(user, userRepository.findByUserId(user.getUserId()));
+		assertNull(userRepository.findByUserId(sameName.getUserId()));
+		List<User> firstPage = userRepository.getPage(0, 40);
+		List<User> lastPage = userRepository.getPage(40, 20);
+		assertEquals(40, firstPage.size());
+		assertEquals(11, lastPage.size());
+		assertEquals(9, userRepository.getPage(0, 9).size());
+		Set<User> pagedUsers = Collections.newSetFromMap(new IdentityHashMap<>());
+		pagedUsers.addAll(firstPage);
+		pagedUsers.addAll(lastPage);
+		assertEquals(51, pagedUsers.size());
+	}
+	
 	@Test
 	public void trackUser() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -93,8 +129,6 @@ public class TestTourGuideService {
 		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
 		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
 		
-		tourGuideService.tracker.stopTracking();
-		
 		assertEquals(user.getUserId(), visitedLocation.userId);
 	}
 
@@ -111,11 +145,31 @@ public class TestTourGuideService {
 		
 		List<Attraction> attractions = tourGuideService.getNearByAttractions(visitedLocation);
 		
-		tourGuideService.tracker.stopTracking();
-		
 		assertEquals(5, attractions.size());
 	}
 
+	@Test
+	public void getClosestAttractions() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
+		
+		List<NearbyAttraction> nearbyAttractions = tourGuideService.getClosestAttractions(user);
+		
+		assertEquals(5, nearbyAttractions.size());
+		double previousDistance = 0;
+		for(NearbyAttraction nearbyAttraction : nearbyAttractions) {
+			assertEquals(visitedLocation.location.latitude, nearbyAttraction.getUserLatitude(), 0);
+			assertTrue(nearbyAttraction.getDistance() >= previousDistance);
+			assertTrue(nearbyAttraction.getRewardPoints() > 0);
+			previousDistance = nearbyAttraction.getDistance();
+		}
+	}
+
 	//TODO : question d'où vient la taille du provider ?
 	@Test
 	public void getTripDeals() {
@@ -128,10 +182,48 @@ public class TestTourGuideService {
 
 		List<Provider> providers = tourGuideService.getTripDeals(user);
 		
-		tourGuideService.tracker.stopTracking();
-		
 		assertEquals(5, providers.size());
 	}
 	
+	@Test
+	public void getTripDealsWithinPriceRange() {
+		TripPricingService tripPricingService = new TripPricingService(new TripPricerPricingProvider());
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.getUserPreferences().setLowerPricePoint(Money.of(200, "USD"));
+		user.getUserPreferences().setHighPricePoint(Money.of(new BigDecimal("600.50"), "USD"));
+		
+		List<Provider> deals = tripPricingService.getDeals(user);
+		List<Provider> quotes = tripPricingService.getQuotes(user);
+		tripPricingService.shutdown();
+		
+		assertEquals(60050, user.getUserPreferences().getHighPricePointCents());
+		assertEquals(quotes.stream().filter(p -> p.price >= 200 && p.price <= 600.5).count(), deals.size());
+		for(int i = 1; i < deals.size(); i++) {
+			assertTrue(deals.get(i - 1).price <= deals.get(i).price);
+		}
+	}
+	
+	@Test
+	public void getTripDealsServedFromCache() {
+		AtomicInteger quotes = new AtomicInteger();
+		TripPricingService tripPricingService = new TripPricingService(new TripPricerPricingProvider(new TripPricer() {
+			@Override
+			public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+				quotes.incrementAndGet();
+				return super.getPrice(apiKey, attractionId, adults, children, nightsStay, rewardsPoints);
+			}
+		}));
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		
+		List<Provider> providers = tripPricingService.getQuotes(user);
+		List<Provider> cachedProviders = tripPricingService.getQuotes(user);
+		user.getUserPreferences().setNumberOfAdults(2);
+		tripPricingService.getQuotes(user);
+		tripPricingService.shutdown();
+		
+		assertSame(providers, cachedProviders);
+		assertEquals(2, quotes.get());
+	}
+	
 	
 }
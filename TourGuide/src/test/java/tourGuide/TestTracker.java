@@ -0,0 +1,265 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import rewardCentral.RewardCentral;
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.provider.GpsUtilLocationProvider;
+import tourGuide.provider.LocationProvider;
+import tourGuide.provider.RewardProvider;
+import tourGuide.provider.SimulatedLatency;
+import tourGuide.provider.SimulatedLocationProvider;
+import tourGuide.provider.SimulatedPricingProvider;
+import tourGuide.provider.SimulatedRewardProvider;
+import tourGuide.provider.TripPricerPricingProvider;
+import tourGuide.service.RewardPointsCache;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.service.TripPricingService;
+import tourGuide.tracker.Tracker;
+import tourGuide.tracker.TrackingBatchResult;
+import tourGuide.tracker.TrackingEngine;
+import tourGuide.tracker.TrackingSchedule;
+import tourGuide.tracker.TrackingSchedule.OverrunPolicy;
+import tourGuide.user.User;
+import tourGuide.user.UserRepository;
+
+public class TestTracker {
+
+	@Test
+	public void slicesUsersStalestFirst() {
+		List<User> users = new ArrayList<>();
+		for(int i = 0; i < 10; i++) {
+			User user = new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com");
+			if(i % 3 != 0) {
+				user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(0, 0), new Date((i * 7919) % 1000)));
+			}
+			users.add(user);
+		}
+		
+		List<List<User>> slices = new TrackingSchedule(1000, 4, OverrunPolicy.CATCH_UP).slice(users);
+		
+		assertEquals(4, slices.size());
+		assertEquals(2, slices.get(0).size());
+		assertEquals(3, slices.get(1).size());
+		List<User> ordered = slices.stream().flatMap(List::stream).collect(Collectors.toList());
+		assertEquals(10, ordered.size());
+		for(int i = 0; i < 4; i++) {
+			assertNull(ordered.get(i).getLatestLocationTimestamp());
+		}
+		for(int i = 5; i < 10; i++) {
+			assertTrue(ordered.get(i - 1).getLatestLocationTimestamp().getTime() <= ordered.get(i).getLatestLocationTimestamp().getTime());
+		}
+	}
+	
+	@Test
+	public void nextSweepFollowsOverrunPolicy() {
+		TrackingSchedule catchUp = new TrackingSchedule(1000, 10, OverrunPolicy.CATCH_UP);
+		TrackingSchedule skip = new TrackingSchedule(1000, 10, OverrunPolicy.SKIP);
+		
+		assertEquals(1300, catchUp.getSliceStart(1000, 3));
+		assertEquals(2000, catchUp.getNextSweepStart(1000, 1800));
+		assertEquals(2000, skip.getNextSweepStart(1000, 1800));
+		assertEquals(3500, catchUp.getNextSweepStart(1000, 3500));
+		assertEquals(4000, skip.getNextSweepStart(1000, 3500));
+		assertTrue(catchUp.isOverrun(1000, 2001));
+	}
+	
+	@Test
+	public void trackerTracksEveryUserOverTheInterval() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		for(int i = 0; i < 6; i++) {
+			tourGuideService.addUser(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+		
+		Tracker tracker = new Tracker(tourGuideService, tourGuideService.getTrackingEngine(), new TrackingSchedule(60000, 3, OverrunPolicy.CATCH_UP));
+		tracker.start();
+		Thread.sleep(1000);
+		tracker.stopTracking();
+		tourGuideService.shutdown();
+		
+		// only the first slice is due within the first second
+		List<User> tracked = tourGuideService.getAllUsers().stream()
+				.filter(u -> u.getLatestLocationTimestamp() != null)
+				.collect(Collectors.toList());
+		assertEquals(2, tracked.size());
+		assertNotNull(tracked.get(0).getLastVisitedLocation());
+	}
+	
+	@Test
+	public void pausedTrackerWaitsAndStopDrainsTheSlice() throws InterruptedException {
+		CountDownLatch sliceStarted = new CountDownLatch(1);
+		LocationProvider locationProvider = new SimulatedLocationProvider(26, new SimulatedLatency(SimulatedLatency.Distribution.FIXED, 100, 100, 0, 42), 42) {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				sliceStarted.countDown();
+				return super.getUserLocation(userId);
+			}
+		};
+		RewardsService rewardsService = new RewardsService(new AttractionCatalog(locationProvider), new RewardPointsCache(new SimulatedRewardProvider(SimulatedLatency.NONE, 42)));
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(locationProvider, rewardsService, new UserRepository(), new TripPricingService(new SimulatedPricingProvider(SimulatedLatency.NONE, 42)));
+		for(int i = 0; i < 10; i++) {
+			tourGuideService.addUser(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+		// two users tracked at a time, so the slice is still being tracked when the tracker is stopped
+		TrackingEngine trackingEngine = new TrackingEngine(tourGuideService, 2);
+		
+		Tracker tracker = new Tracker(tourGuideService, trackingEngine, new TrackingSchedule(60000, 1, OverrunPolicy.CATCH_UP));
+		tracker.pause();
+		tracker.start();
+		Thread.sleep(300);
+		assertTrue(tourGuideService.getAllUsers().stream().allMatch(u -> u.getVisitedLocationCount() == 0));
+		
+		tracker.resume();
+		sliceStarted.await();
+		assertTrue(tracker.stop(5, TimeUnit.SECONDS));
+		
+		assertFalse(tracker.isRunning());
+		assertTrue(tourGuideService.getAllUsers().stream().allMatch(u -> u.getVisitedLocationCount() == 1));
+		trackingEngine.shutdown();
+		tourGuideService.shutdown();
+		rewardsService.shutdown();
+	}
+	
+	@Test
+	public void batchTrackingCountsFailuresPerStage() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		LocationProvider locationProvider = new GpsUtilLocationProvider(gpsUtil) {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				if(userId.getLeastSignificantBits() == 0) {
+					throw new IllegalStateException("No fix");
+				}
+				return super.getUserLocation(userId);
+			}
+		};
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(locationProvider, rewardsService, new UserRepository(), new TripPricingService(new TripPricerPricingProvider()));
+		List<User> users = new ArrayList<>();
+		for(int i = 0; i < 20; i++) {
+			users.add(new User(new UUID(i + 1, i % 5 == 0 ? 0 : i + 1), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+		
+		TrackingBatchResult result = tourGuideService.trackUserLocations(users).join();
+		
+		assertEquals(20, result.getUserCount());
+		assertEquals(4, result.getLocationFailureCount());
+		assertEquals(0, result.getRewardFailureCount());
+		assertEquals(16, result.getSuccessCount());
+		for(int i = 0; i < users.size(); i++) {
+			if(i % 5 == 0) {
+				assertNull(result.getVisitedLocations().get(i));
+				assertEquals(0, users.get(i).getVisitedLocationCount());
+			} else {
+				assertEquals(users.get(i).getUserId(), result.getVisitedLocations().get(i).userId);
+				assertEquals(result.getVisitedLocations().get(i).timeVisited, users.get(i).getLastVisitedLocation().timeVisited);
+			}
+		}
+	}
+	
+	@Test(timeout = 10000)
+	public void batchTrackingReturnsBeforeThePipelineHasRoomAndTimesEachUser() throws InterruptedException {
+		CountDownLatch fixesAvailable = new CountDownLatch(1);
+		LocationProvider locationProvider = new SimulatedLocationProvider(26, SimulatedLatency.NONE, 42) {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				try {
+					fixesAvailable.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.getUserLocation(userId);
+			}
+		};
+		RewardsService rewardsService = new RewardsService(new AttractionCatalog(locationProvider), new RewardPointsCache(new SimulatedRewardProvider(SimulatedLatency.NONE, 42)));
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(locationProvider, rewardsService, new UserRepository(), new TripPricingService(new SimulatedPricingProvider(SimulatedLatency.NONE, 42)));
+		TrackingEngine trackingEngine = new TrackingEngine(tourGuideService, 1, 1);
+		List<User> users = new ArrayList<>();
+		for(int i = 0; i < 3; i++) {
+			users.add(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+		try {
+			CompletableFuture<TrackingBatchResult> tracked = trackingEngine.trackUsersAsync(users);
+			assertFalse(tracked.isDone());
+			fixesAvailable.countDown();
+			
+			assertEquals(3, tracked.join().getSuccessCount());
+			assertEquals(3, registry.get("tourguide.tracking.user").timer().count());
+		} finally {
+			Metrics.removeRegistry(registry);
+		}
+		trackingEngine.shutdown();
+		tourGuideService.shutdown();
+		rewardsService.shutdown();
+	}
+	
+	@Test(timeout = 10000)
+	public void shutdownCompletesTheBatchInProgress() throws InterruptedException {
+		CountDownLatch lookingUpRewards = new CountDownLatch(1);
+		RewardProvider stuckRewards = (attractionId, userId) -> {
+			lookingUpRewards.countDown();
+			try {
+				new CountDownLatch(1).await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			throw new IllegalStateException("Reward lookup interrupted");
+		};
+		LocationProvider locationProvider = new SimulatedLocationProvider(26, SimulatedLatency.NONE, 42) {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				Attraction attraction = getAttractions().get(0);
+				return new VisitedLocation(userId, new Location(attraction.latitude, attraction.longitude), new Date());
+			}
+		};
+		// a single rewards worker, so the users behind the first one queue on the rewards pool
+		RewardsService rewardsService = new RewardsService(new AttractionCatalog(locationProvider), new RewardPointsCache(stuckRewards), 1);
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(locationProvider, rewardsService, new UserRepository(), new TripPricingService(new SimulatedPricingProvider(SimulatedLatency.NONE, 42)));
+		TrackingEngine trackingEngine = new TrackingEngine(tourGuideService, 2);
+		List<User> users = new ArrayList<>();
+		for(int i = 0; i < 5; i++) {
+			users.add(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+		
+		CompletableFuture<TrackingBatchResult> tracked = trackingEngine.trackUsersAsync(users);
+		lookingUpRewards.await();
+		rewardsService.shutdown();
+		trackingEngine.shutdown();
+		
+		TrackingBatchResult result = tracked.join();
+		assertEquals(5, result.getUserCount());
+		assertEquals(0, result.getSuccessCount());
+		tourGuideService.shutdown();
+	}
+}
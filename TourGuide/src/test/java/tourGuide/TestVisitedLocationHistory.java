@@ -0,0 +1,77 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.user.LocationRetentionPolicy;
+import tourGuide.user.User;
+import tourGuide.user.VisitedLocationHistory;
+
+public class TestVisitedLocationHistory {
+
+	private final UUID userId = UUID.randomUUID();
+
+	@Test
+	public void keepsMostRecentLocationsUpToMaxCount() {
+		VisitedLocationHistory history = new VisitedLocationHistory(userId, new LocationRetentionPolicy(10, LocationRetentionPolicy.NO_AGE_LIMIT));
+		assertNull(history.getLast());
+
+		for(int i = 0; i < 25; i++) {
+			history.add(visitedLocation(i, new Date(i)));
+		}
+
+		List<VisitedLocation> locations = history.toList();
+		assertEquals(10, history.size());
+		assertEquals(25, history.getAppendedCount());
+		assertEquals(15, locations.get(0).location.latitude, 0);
+		assertEquals(24, history.getLast().location.latitude, 0);
+		assertEquals(new Date(24), history.getLast().timeVisited);
+		assertEquals(userId, history.getLast().userId);
+		assertEquals(3, history.getSince(22).size());
+		assertEquals(10, history.getSince(0).size());
+	}
+
+	@Test
+	public void evictsLocationsOlderThanMaxAgeButKeepsTheLatest() {
+		VisitedLocationHistory history = new VisitedLocationHistory(userId, new LocationRetentionPolicy(100, TimeUnit.DAYS.toMillis(1)));
+		long now = System.currentTimeMillis();
+
+		history.add(visitedLocation(1, new Date(now - TimeUnit.DAYS.toMillis(3))));
+		history.add(visitedLocation(2, new Date(now - TimeUnit.DAYS.toMillis(2))));
+		assertEquals(1, history.size());
+
+		history.add(visitedLocation(3, new Date(now)));
+		assertEquals(1, history.size());
+		assertEquals(3, history.getLast().location.latitude, 0);
+	}
+
+	@Test
+	public void pendingRewardLocationsSkipEvictedOnes() {
+		User user = new User(userId, "jon", "000", "jon@tourGuide.com", new LocationRetentionPolicy(3, LocationRetentionPolicy.NO_AGE_LIMIT));
+		for(int i = 0; i < 5; i++) {
+			user.addToVisitedLocations(visitedLocation(i, new Date()));
+		}
+
+		List<VisitedLocation> pending = user.getLocationsPendingRewards();
+		assertEquals(3, pending.size());
+		user.markLocationsRewarded(pending.size());
+		user.addToVisitedLocations(visitedLocation(5, new Date()));
+
+		pending = user.getLocationsPendingRewards();
+		assertEquals(1, pending.size());
+		assertEquals(5, pending.get(0).location.latitude, 0);
+	}
+
+	private VisitedLocation visitedLocation(double latitude, Date timeVisited) {
+		return new VisitedLocation(userId, new Location(latitude, 0), timeVisited);
+	}
+}
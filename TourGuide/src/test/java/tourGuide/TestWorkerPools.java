@@ -0,0 +1,99 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import tourGuide.helper.WorkerPools;
+import tourGuide.helper.WorkerPools.Mode;
+
+public class TestWorkerPools {
+
+	@Test
+	public void platformPoolCapsConcurrency() {
+		assertCapsConcurrency(WorkerPools.newWorkerPool("test-worker", 5, Mode.PLATFORM));
+	}
+
+	@Test
+	public void virtualPoolCapsConcurrency() {
+		assumeTrue(WorkerPools.isVirtualThreadSupported());
+		assertCapsConcurrency(WorkerPools.newWorkerPool("test-worker", 5, Mode.VIRTUAL));
+	}
+
+	@Test
+	public void virtualPoolPublishesExecutorMetrics() throws InterruptedException {
+		assumeTrue(WorkerPools.isVirtualThreadSupported());
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+		try {
+			ExecutorService executorService = WorkerPools.monitor(WorkerPools.newWorkerPool("test-worker", 2, Mode.VIRTUAL), "test-virtual");
+			CountDownLatch release = new CountDownLatch(1);
+			CompletableFuture<?>[] tasks = IntStream.range(0, 5)
+					.mapToObj(i -> CompletableFuture.runAsync(() -> {
+						try {
+							release.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}, executorService))
+					.toArray(CompletableFuture<?>[]::new);
+			// tasks count as queued from submission, before the first two take their permits
+			for(int i = 0; i < 100 && (gauge(registry, "executor.active") < 2 || gauge(registry, "executor.queued") > 3); i++) {
+				Thread.sleep(10);
+			}
+
+			assertEquals(2, gauge(registry, "executor.active"), 0);
+			assertEquals(3, gauge(registry, "executor.queued"), 0);
+			assertEquals(5, gauge(registry, "executor.pool.size"), 0);
+			release.countDown();
+			CompletableFuture.allOf(tasks).join();
+			// a task counts as completed once its worker returns, after its future completed
+			executorService.shutdown();
+			assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+			assertEquals(5, registry.get("executor.completed").tag("name", "test-virtual").functionCounter().count(), 0);
+			assertEquals(0, gauge(registry, "executor.active"), 0);
+		} finally {
+			Metrics.removeRegistry(registry);
+		}
+	}
+
+	private double gauge(SimpleMeterRegistry registry, String name) {
+		return registry.get(name).tag("name", "test-virtual").gauge().value();
+	}
+
+	private void assertCapsConcurrency(ExecutorService executorService) {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		AtomicInteger completed = new AtomicInteger();
+		
+		CompletableFuture.allOf(IntStream.range(0, 50)
+				.mapToObj(i -> CompletableFuture.runAsync(() -> {
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					running.decrementAndGet();
+					completed.incrementAndGet();
+				}, executorService))
+				.toArray(CompletableFuture[]::new))
+			.join();
+		executorService.shutdownNow();
+		
+		assertEquals(50, completed.get());
+		assertTrue("max running: " + maxRunning.get(), maxRunning.get() <= 5);
+	}
+}